@@ -0,0 +1,317 @@
+package Libraries.MaryTTS.Tutorial;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Cache of synthesized audio, so text that is read again plays without being synthesized again.
+ * <p>
+ * Clips are keyed by the voice, the audio effects and the text with its white space collapsed. Gain is not part of
+ * the key since it is applied by the line the audio plays on, not synthesized into it. The clips used last are kept in
+ * memory up to a byte budget, and those pushed out can be spilled to a directory with a budget of its own.
+ *
+ */
+public class AudioCache {
+
+	private static final int MAGIC = 0x494C4143; // "ILAC" at the start of each spilled clip
+	private static final String EXTENSION = ".pcm";
+
+	private final long memoryBudget;
+	private final Path directory; // Null if clips are not spilled
+	private final long diskBudget;
+	private final LinkedHashMap<String, Clip> memory = new LinkedHashMap<>(16, 0.75f, true); // Least recently used first
+	private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true); // Size of each spilled file
+	private long memoryBytes;
+	private long diskBytes;
+
+	private long hits; // Found in memory or on disk
+	private long diskHits; // Found on disk
+	private long misses;
+
+	/**
+	 * Synthesized audio of some text
+	 */
+	public static final class Clip {
+		private final AudioFormat format;
+		private final byte[] data;
+
+		/**
+		 * @param format
+		 *            Format of the audio
+		 * @param data
+		 *            The audio, which must not be changed after this
+		 */
+		public Clip(AudioFormat format , byte[] data) {
+			this.format = format;
+			this.data = data;
+		}
+
+		/**
+		 * @return The format of the audio
+		 */
+		public AudioFormat getFormat() {
+			return format;
+		}
+
+		/**
+		 * @return The audio, which must not be changed
+		 */
+		public byte[] getData() {
+			return data;
+		}
+	}
+
+	/**
+	 * Cache that only keeps clips in memory
+	 *
+	 * @param memoryBudget
+	 *            Bytes of audio kept in memory
+	 */
+	public AudioCache(long memoryBudget) {
+		this(memoryBudget, null, 0);
+	}
+
+	/**
+	 * Cache that spills clips to a directory, the clips already in it from before are used too
+	 *
+	 * @param memoryBudget
+	 *            Bytes of audio kept in memory
+	 * @param directory
+	 *            Directory clips are spilled to, created if it does not exist
+	 * @param diskBudget
+	 *            Bytes of audio kept in the directory
+	 */
+	public AudioCache(long memoryBudget , Path directory , long diskBudget) {
+		this.memoryBudget = memoryBudget;
+		this.diskBudget = diskBudget;
+		Path dir = directory;
+		if (dir != null) {
+			try {
+				Files.createDirectories(dir);
+				indexDirectory(dir);
+			} catch (IOException ex) {
+				Logger.getLogger(getClass().getName()).log(Level.WARNING, "Audio cache directory cannot be used", ex);
+				dir = null; // Keeps clips in memory only
+			}
+		}
+		this.directory = dir;
+	}
+
+	/**
+	 * Audio of text read with a voice and effects, or null if it is not cached
+	 *
+	 * @param voice
+	 *            Name of the voice
+	 * @param effects
+	 *            Audio effects, or null for none
+	 * @param text
+	 *            The text
+	 * @return The clip, or null
+	 */
+	public synchronized Clip get(String voice , String effects , String text) {
+		String key = keyOf(voice, effects, text);
+		Clip clip = memory.get(key);
+		// Getting the entry, not just checking for it, makes it the most recently used
+		if (clip == null && directory != null && disk.get(fileNameOf(key)) != null) {
+			clip = readClip(fileNameOf(key));
+			if (clip != null) {
+				diskHits++;
+				putInMemory(key, clip);
+			}
+		}
+		if (clip == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return clip;
+	}
+
+	/**
+	 * Caches the audio of text read with a voice and effects
+	 *
+	 * @param voice
+	 *            Name of the voice
+	 * @param effects
+	 *            Audio effects, or null for none
+	 * @param text
+	 *            The text
+	 * @param clip
+	 *            Its audio
+	 */
+	public synchronized void put(String voice , String effects , String text , Clip clip) {
+		putInMemory(keyOf(voice, effects, text), clip);
+	}
+
+	/**
+	 * @return The share of lookups that were found, 0.0 to 1.0
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return ( lookups == 0 ) ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * @return How many lookups were found, how many missed, and how much audio is kept
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("Audio cache: %d hits (%d from disk), %d misses, %.0f%% hit rate, %.1f MB in memory, %.1f MB on disk", hits, diskHits, misses,
+				100 * getHitRate(), memoryBytes / 1e6, diskBytes / 1e6);
+	}
+
+	/**
+	 * Adds a clip as the most recently used, pushing the least recently used ones out past the budget
+	 */
+	private void putInMemory(String key , Clip clip) {
+		Clip old = memory.put(key, clip);
+		if (old != null) {
+			memoryBytes -= old.data.length;
+		}
+		memoryBytes += clip.data.length;
+		Iterator<Map.Entry<String, Clip>> eldest = memory.entrySet().iterator();
+		while (memoryBytes > memoryBudget && eldest.hasNext()) {
+			Map.Entry<String, Clip> entry = eldest.next();
+			eldest.remove();
+			memoryBytes -= entry.getValue().data.length;
+			spill(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Writes a clip pushed out of memory to the directory, if it is not there already
+	 */
+	private void spill(String key , Clip clip) {
+		String name = fileNameOf(key);
+		AudioFormat.Encoding encoding = clip.format.getEncoding();
+		if (directory == null || disk.get(name) != null || clip.data.length > diskBudget
+				|| ( !encoding.equals(AudioFormat.Encoding.PCM_SIGNED) && !encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED) )) {
+			return;
+		}
+		Path file = directory.resolve(name);
+		Path temp = directory.resolve(name + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeFloat(clip.format.getSampleRate());
+			out.writeInt(clip.format.getSampleSizeInBits());
+			out.writeInt(clip.format.getChannels());
+			out.writeBoolean(encoding.equals(AudioFormat.Encoding.PCM_SIGNED));
+			out.writeBoolean(clip.format.isBigEndian());
+			out.writeInt(clip.data.length);
+			out.write(clip.data);
+		} catch (IOException ex) {
+			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Could not spill audio", ex);
+			return;
+		}
+		long size;
+		try {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			size = Files.size(file);
+		} catch (IOException ex) {
+			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Could not spill audio", ex);
+			return;
+		}
+		disk.put(name, size);
+		diskBytes += size;
+		trimDisk(directory);
+	}
+
+	/**
+	 * Deletes the spilled clips used least recently until the rest fit in the disk budget
+	 */
+	private void trimDisk(Path dir) {
+		Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+		while (diskBytes > diskBudget && eldest.hasNext()) {
+			Map.Entry<String, Long> entry = eldest.next();
+			eldest.remove();
+			diskBytes -= entry.getValue();
+			try {
+				Files.deleteIfExists(dir.resolve(entry.getKey()));
+			} catch (IOException ex) {
+				Logger.getLogger(getClass().getName()).log(Level.WARNING, null, ex);
+			}
+		}
+	}
+
+	/**
+	 * Reads a spilled clip, or returns null and forgets it if it cannot be read
+	 */
+	private Clip readClip(String name) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(name))))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a cached clip");
+			}
+			AudioFormat format = new AudioFormat(in.readFloat(), in.readInt(), in.readInt(), in.readBoolean(), in.readBoolean());
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			return new Clip(format, data);
+		} catch (IOException ex) {
+			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Could not read cached audio", ex);
+			diskBytes -= disk.remove(name);
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the clips spilled before to the index, least recently written first, and deletes the oldest past the budget
+	 */
+	private void indexDirectory(Path dir) throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+			for (Path file : stream) {
+				files.add(file);
+			}
+		}
+		files.sort(Comparator.comparing(file -> file.toFile().lastModified()));
+		for (Path file : files) {
+			long size = Files.size(file);
+			disk.put(file.getFileName().toString(), size);
+			diskBytes += size;
+		}
+		trimDisk(dir); // The budget may be smaller than when the clips were spilled
+	}
+
+	/**
+	 * Key of text read with a voice and effects, white space in the text does not change it
+	 */
+	private static String keyOf(String voice , String effects , String text) {
+		return voice + '\u0000' + ( ( effects == null ) ? "" : effects ) + '\u0000' + text.strip().replaceAll("\\s+", " ");
+	}
+
+	/**
+	 * Name of the file a key is spilled to, a hash so any text makes a valid name
+	 */
+	private static String fileNameOf(String key) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 16; i++) {
+				sb.append(String.format("%02x", hash[i]));
+			}
+			return sb.append(EXTENSION).toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex); // Every JVM has SHA-256
+		}
+	}
+
+}
@@ -0,0 +1,306 @@
+package Libraries.MaryTTS.Tutorial;
+
+import java.util.ArrayDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays queued clips one after another on a single audio thread that lives as long as the service.
+ * <p>
+ * The line stays open between clips and is only reopened when the format changes, so queued clips play back to back
+ * without a gap, and nothing is allocated per clip. A line left idle is closed after a while so the audio device is
+ * not held, and opened again by the next clip.
+ * <p>
+ * Clips are queued with the generation they were made for. {@link #stop()} starts a new generation, so clips still
+ * being made for the one it stopped are dropped when they are queued.
+ *
+ */
+public class PlaybackService {
+
+	/** Bytes written to the line at a time, so pause, skip and stop are noticed quickly */
+	private static final int WRITE_SIZE = 4096;
+
+	/** An idle line is closed after this long */
+	private static final long IDLE_CLOSE_MILLIS = 5000;
+
+	private final Object lock = new Object();
+	private final ArrayDeque<AudioCache.Clip> queue = new ArrayDeque<>();
+	private int generation;
+	private boolean paused;
+	private boolean skipRequested;
+	private boolean playing; // A clip is being written
+	private float gain = 1.0f;
+	private volatile SourceDataLine line; // Only opened and closed by the audio thread
+	private volatile long framesWritten; // Frames written to the line since it was opened
+
+	/**
+	 * Starts the audio thread, which is a daemon thread
+	 */
+	public PlaybackService() {
+		Thread thread = new Thread(this::run, "Speech playback");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return The current generation, to queue clips with
+	 */
+	public int getGeneration() {
+		synchronized (lock) {
+			return generation;
+		}
+	}
+
+	/**
+	 * Queues a clip to play after the ones already queued
+	 *
+	 * @param clip
+	 *            The clip
+	 * @param clipGeneration
+	 *            Generation the clip was made for, it is dropped if the service was stopped since
+	 */
+	public void enqueue(AudioCache.Clip clip , int clipGeneration) {
+		synchronized (lock) {
+			if (clipGeneration == generation) {
+				queue.add(clip);
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Waits until fewer than maxQueued clips are waiting to play, so a producer stays only a little ahead
+	 *
+	 * @param maxQueued
+	 *            Clips that may be waiting
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted
+	 */
+	public void awaitRoom(int maxQueued) throws InterruptedException {
+		synchronized (lock) {
+			while (queue.size() >= maxQueued) {
+				lock.wait();
+			}
+		}
+	}
+
+	/**
+	 * Waits until every queued clip has been heard
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted
+	 */
+	public void awaitIdle() throws InterruptedException {
+		synchronized (lock) {
+			while (!queue.isEmpty() || playing) {
+				lock.wait();
+			}
+		}
+		// The end of the last clip may still be in the line, it has played once the line stops moving
+		SourceDataLine l = line;
+		long position = -1;
+		while (l != null && l.isOpen() && l.getLongFramePosition() < framesWritten && l.getLongFramePosition() != position) {
+			position = l.getLongFramePosition();
+			Thread.sleep(50);
+		}
+	}
+
+	/**
+	 * Pauses playback where it is, the queue is kept
+	 */
+	public void pause() {
+		synchronized (lock) {
+			paused = true;
+			SourceDataLine l = line;
+			if (l != null) {
+				l.stop();
+			}
+		}
+	}
+
+	/**
+	 * Resumes playback after {@link #pause()}
+	 */
+	public void resume() {
+		synchronized (lock) {
+			paused = false;
+			SourceDataLine l = line;
+			if (l != null) {
+				l.start();
+			}
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * @return True if playback is paused
+	 */
+	public boolean isPaused() {
+		synchronized (lock) {
+			return paused;
+		}
+	}
+
+	/**
+	 * Drops the clip that is playing and goes on with the next one
+	 */
+	public void skip() {
+		synchronized (lock) {
+			if (playing) {
+				skipRequested = true;
+				flushLine();
+			}
+		}
+	}
+
+	/**
+	 * Stops playing at once and drops every queued clip, and clips queued for the current generation from now on
+	 */
+	public void stop() {
+		synchronized (lock) {
+			generation++;
+			queue.clear();
+			paused = false;
+			if (playing) {
+				skipRequested = true;
+			}
+			flushLine();
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Sets the gain of this and later clips
+	 *
+	 * @param gainValue
+	 *            Linear gain, 0.0 to 1.0
+	 */
+	public void setGain(float gainValue) {
+		synchronized (lock) {
+			gain = gainValue;
+			SourceDataLine l = line;
+			if (l != null) {
+				applyGain(l);
+			}
+		}
+	}
+
+	/**
+	 * Drops the audio in the line, a write in progress returns, called holding the lock
+	 */
+	private void flushLine() {
+		SourceDataLine l = line;
+		if (l != null) {
+			l.stop();
+			l.flush();
+			if (!paused) {
+				l.start();
+			}
+		}
+	}
+
+	/**
+	 * The audio thread, plays queued clips until the program ends
+	 */
+	private void run() {
+		while (true) {
+			AudioCache.Clip clip;
+			int clipGeneration;
+			synchronized (lock) {
+				long idleSince = System.currentTimeMillis();
+				while (queue.isEmpty() || paused) {
+					long idle = System.currentTimeMillis() - idleSince;
+					if (line != null && !paused && idle >= IDLE_CLOSE_MILLIS) {
+						line.close(); // Lets go of the audio device
+						line = null;
+					}
+					try {
+						lock.wait(( line != null ) ? Math.max(1, IDLE_CLOSE_MILLIS - idle) : 0);
+					} catch (InterruptedException ex) {
+						return;
+					}
+				}
+				clip = queue.poll();
+				clipGeneration = generation;
+				playing = true;
+				skipRequested = false;
+				lock.notifyAll(); // There is room in the queue
+			}
+			try {
+				play(clip, clipGeneration);
+			} catch (LineUnavailableException | IllegalArgumentException ex) {
+				Logger.getLogger(getClass().getName()).log(Level.WARNING, null, ex);
+			} catch (InterruptedException ex) {
+				return;
+			} finally {
+				synchronized (lock) {
+					playing = false;
+					lock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a clip to the line a slice at a time, stopping early if it is skipped or playback is stopped
+	 */
+	private void play(AudioCache.Clip clip , int clipGeneration) throws LineUnavailableException, InterruptedException {
+		byte[] data = clip.getData();
+		if (line == null || !line.getFormat().matches(clip.getFormat())) {
+			openLine(clip.getFormat());
+		}
+		int frameSize = Math.max(1, clip.getFormat().getFrameSize());
+		for (int i = 0; i < data.length; i += WRITE_SIZE) {
+			synchronized (lock) {
+				while (paused && !skipRequested && clipGeneration == generation) {
+					lock.wait();
+				}
+				if (skipRequested || clipGeneration != generation) {
+					return;
+				}
+			}
+			int written = line.write(data, i, Math.min(WRITE_SIZE, data.length - i));
+			framesWritten += written / frameSize;
+		}
+	}
+
+	/**
+	 * Opens a line for format, after the line open for another format has played what it has
+	 */
+	private void openLine(AudioFormat format) throws LineUnavailableException {
+		if (line != null) {
+			line.drain();
+			line.close();
+			line = null;
+		}
+		SourceDataLine l = (SourceDataLine) AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, format));
+		l.open(format);
+		synchronized (lock) {
+			applyGain(l);
+			framesWritten = 0;
+			line = l;
+			if (!paused) {
+				l.start();
+			}
+		}
+	}
+
+	/**
+	 * Sets the gain of a line that supports it, called holding the lock
+	 */
+	private void applyGain(SourceDataLine l) {
+		if (l.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+			FloatControl control = (FloatControl) l.getControl(FloatControl.Type.MASTER_GAIN);
+			float decibels = (float) ( 20 * Math.log10(gain) ); // Minus infinity for a gain of 0
+			control.setValue(Math.max(control.getMinimum(), Math.min(control.getMaximum(), decibels)));
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package Libraries.MaryTTS.Tutorial;
+
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioInputStream;
+
+import marytts.MaryInterface;
+import marytts.exceptions.SynthesisException;
+
+/**
+ * Reads a text one sentence at a time, synthesizing the next sentence while the current one plays.
+ * <p>
+ * The text is split and synthesized on a synthesizer thread, and each sentence is queued on a
+ * {@link PlaybackService}, which plays them back to back on the line it keeps open. The synthesizer is never more than
+ * one sentence ahead of playback, so the time to the first audio and the memory used do not depend on how long the
+ * text is.
+ * <p>
+ * Sentences found in an {@link AudioCache} are played without being synthesized again, and those synthesized are
+ * added to it.
+ * <p>
+ * Like {@link AudioPlayer}, a pipeline can only be started once.
+ *
+ */
+public class SentencePipeline {
+
+	/** Sentences longer than this are split at a space, so one long sentence cannot hold up the start */
+	private static final int MAX_SENTENCE_LENGTH = 300;
+
+	/** Sentences queued ahead of the one playing */
+	private static final int LOOKAHEAD = 1;
+
+	private final MaryInterface marytts;
+	private final AudioCache cache; // Null if sentences are not cached
+	private final PlaybackService playback;
+	private final String text;
+	private final int generation; // Playback generation the sentences are queued for
+	private volatile boolean cancelled;
+	private Future<?> task;
+	private int sentenceCount; // Sentences read so far
+	private int cachedSentences; // Sentences that were found in the cache
+
+	/**
+	 * @param marytts
+	 *            The MaryTTS to synthesize with
+	 * @param cache
+	 *            Cache of synthesized sentences, or null
+	 * @param playback
+	 *            Where the sentences are played, stopping it stops the pipeline from queuing any more
+	 * @param text
+	 *            The text to read
+	 */
+	public SentencePipeline(MaryInterface marytts , AudioCache cache , PlaybackService playback , String text) {
+		this.marytts = marytts;
+		this.cache = cache;
+		this.playback = playback;
+		this.text = text;
+		this.generation = playback.getGeneration();
+	}
+
+	/**
+	 * Starts reading, returns at once
+	 *
+	 * @param synthesizer
+	 *            Executor the sentences are synthesized on, a single thread keeps pipelines from overlapping
+	 */
+	public synchronized void start(ExecutorService synthesizer) {
+		task = synthesizer.submit(this::synthesize);
+	}
+
+	/**
+	 * Stops synthesizing, the sentences already queued are left to the playback service
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		if (task != null) {
+			task.cancel(true);
+		}
+	}
+
+	/**
+	 * Splits a text into the sentences it is read in, sentences longer than {@link #MAX_SENTENCE_LENGTH} are split at a
+	 * space and blank ones are left out
+	 *
+	 * @param text
+	 *            The text
+	 * @return The sentences in order
+	 */
+	public static List<String> sentencesOf(String text) {
+		List<String> result = new ArrayList<>();
+		BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.US);
+		sentences.setText(text);
+		int start = sentences.first();
+		for (int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+			while (end - start > MAX_SENTENCE_LENGTH) {
+				int split = text.lastIndexOf(' ', start + MAX_SENTENCE_LENGTH);
+				split = (split > start) ? split + 1 : start + MAX_SENTENCE_LENGTH;
+				addSentence(result, text.substring(start, split));
+				start = split;
+			}
+			addSentence(result, text.substring(start, end));
+		}
+		return result;
+	}
+
+	private static void addSentence(List<String> result , String sentence) {
+		if (!sentence.isBlank()) {
+			result.add(sentence);
+		}
+	}
+
+	/**
+	 * Synthesizes the sentences of the text in order, runs on the synthesizer thread
+	 */
+	private void synthesize() {
+		try {
+			for (String sentence : sentencesOf(text)) {
+				if (cancelled) {
+					return;
+				}
+				synthesizeSentence(sentence);
+			}
+			if (cache != null && !cancelled) {
+				Logger.getLogger(getClass().getName()).log(Level.INFO,
+						"Read " + sentenceCount + " sentences, " + cachedSentences + " from the cache. " + cache);
+			}
+		} catch (InterruptedException ex) {
+			// Cancelled
+		}
+	}
+
+	/**
+	 * Synthesizes one sentence, or takes it from the cache, and queues it once there is room
+	 */
+	private void synthesizeSentence(String sentence) throws InterruptedException {
+		if (cancelled) {
+			return;
+		}
+		sentenceCount++;
+		String voice = marytts.getVoice();
+		String effects = marytts.getAudioEffects();
+		AudioCache.Clip audio = ( cache != null ) ? cache.get(voice, effects, sentence) : null;
+		if (audio != null) {
+			cachedSentences++;
+		} else {
+			// Other threads may be synthesizing with the same MaryTTS
+			synchronized (marytts) {
+				if (cancelled) {
+					return;
+				}
+				try (AudioInputStream ais = marytts.generateAudio(sentence)) {
+					audio = new AudioCache.Clip(ais.getFormat(), ais.readAllBytes());
+				} catch (SynthesisException | IOException ex) {
+					Logger.getLogger(getClass().getName()).log(Level.WARNING, "Error saying sentence.", ex);
+					return;
+				}
+			}
+			if (cache != null) {
+				cache.put(voice, effects, sentence, audio);
+			}
+		}
+		playback.awaitRoom(LOOKAHEAD);
+		if (!cancelled) {
+			playback.enqueue(audio, generation);
+		}
+	}
+
+}
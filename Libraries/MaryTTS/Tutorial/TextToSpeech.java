@@ -3,6 +3,9 @@ package Libraries.MaryTTS.Tutorial;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -24,8 +27,17 @@ import marytts.signalproc.effects.AudioEffects;
  */
 public class TextToSpeech {
 
-	private AudioPlayer tts;
-	private MaryInterface marytts;
+	private final PlaybackService playback = new PlaybackService();
+	private final ExecutorService synthesizer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Speech synthesizer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private SentencePipeline pipeline;
+	private AudioCache audioCache;
+	private VoicePool voicePool;
+	private volatile MaryInterface marytts; // Replaced when another voice is selected
+	private volatile String selectedVoice; // Voice last asked for with selectVoice
 
 	/**
 	 * Constructor
@@ -47,12 +59,10 @@ public class TextToSpeech {
 	 * @param text
 	 *            The text that will be transformed to speech
 	 * @param daemon
-	 *            <br>
-	 *            <b>True</b> The thread that will start the text to speech Player will be a daemon Thread <br>
-	 *            <b>False</b> The thread that will start the text to speech Player will be a normal non daemon Thread
+	 *            Ignored, the speech is played by the playback service, whose thread is always a daemon Thread
 	 * @param join
 	 *            <br>
-	 *            <b>True</b> The current Thread calling this method will wait(blocked) until the Thread which is playing the Speech finish <br>
+	 *            <b>True</b> The current Thread calling this method will wait(blocked) until the Speech has been played <br>
 	 *            <b>False</b> The current Thread calling this method will continue freely after calling this method
 	 */
 	public void speak(String text , float gainValue , boolean daemon , boolean join) {
@@ -62,15 +72,11 @@ public class TextToSpeech {
 
 		try (AudioInputStream audio = marytts.generateAudio(text)) {
 
-			// Player is a thread(threads can only run one time) so it can be
-			// used has to be initiated every time
-			tts = new AudioPlayer();
-			tts.setAudio(audio);
-			tts.setGain(gainValue);
-			tts.setDaemon(daemon);
-			tts.start();
+			// Played on the line the service keeps open, no thread is started for it
+			playback.setGain(gainValue);
+			playback.enqueue(new AudioCache.Clip(audio.getFormat(), audio.readAllBytes()), playback.getGeneration());
 			if (join)
-				tts.join();
+				playback.awaitIdle();
 
 		} catch (SynthesisException ex) {
 			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Error saying phrase.", ex);
@@ -78,17 +84,55 @@ public class TextToSpeech {
 			Logger.getLogger(getClass().getName()).log(Level.WARNING, "IO Exception", ex);
 		} catch (InterruptedException ex) {
 			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Interrupted ", ex);
-			tts.interrupt();
+			stopSpeaking();
 		}
 	}
 
+	/**
+	 * Transform text to speech a sentence at a time, the next sentence is synthesized while the current one plays.
+	 * Returns at once, so it can be called from the EDT
+	 *
+	 * @param text
+	 *            The text that will be transformed to speech
+	 * @param gainValue
+	 *            Linear gain, 0.0 to 1.0
+	 */
+	public void speakSentences(String text , float gainValue) {
+
+		// Stop the previous player
+		stopSpeaking();
+
+		playback.setGain(gainValue);
+		pipeline = new SentencePipeline(marytts, audioCache, playback, text);
+		pipeline.start(synthesizer);
+	}
+
 	/**
 	 * Stop the MaryTTS from Speaking
 	 */
 	public void stopSpeaking() {
-		// Stop the previous player
-		if (tts != null)
-			tts.cancel();
+		// Stop synthesizing sentences
+		if (pipeline != null)
+			pipeline.cancel();
+		// Stop the player and drop what is queued
+		playback.stop();
+	}
+
+	/**
+	 * Pause the speech where it is, or resume it if it is paused
+	 */
+	public void togglePause() {
+		if (playback.isPaused())
+			playback.resume();
+		else
+			playback.pause();
+	}
+
+	/**
+	 * Skip the rest of the sentence being spoken
+	 */
+	public void skipSentence() {
+		playback.skip();
 	}
 
 	//----------------------GETTERS---------------------------------------------------//
@@ -102,6 +146,22 @@ public class TextToSpeech {
 		return Voice.getAvailableVoices();
 	}
 
+	/**
+	 * Names of the available voices, sorted
+	 *
+	 * @return The names of the available voices for MaryTTS
+	 */
+	public List<String> getAvailableVoiceNames() {
+		return getAvailableVoices().stream().map(Voice::getName).sorted().collect(Collectors.toList());
+	}
+
+	/**
+	 * @return The voice text is read with
+	 */
+	public String getVoice() {
+		return marytts.getVoice();
+	}
+
 	/**
 	 * @return the marytts
 	 */
@@ -109,6 +169,13 @@ public class TextToSpeech {
 		return marytts;
 	}
 
+	/**
+	 * @return the cache of sentences read with speakSentences, or null
+	 */
+	public AudioCache getAudioCache() {
+		return audioCache;
+	}
+
 	/**
 	 * Return a list of available audio effects for MaryTTS
 	 *
@@ -129,4 +196,52 @@ public class TextToSpeech {
 		marytts.setVoice(voice);
 	}
 
+	/**
+	 * Change the voice text is read with from the next text on, without waiting for the voice to load on the speaking
+	 * path. Text already being read keeps its voice
+	 *
+	 * @param voice
+	 *            Name of the voice
+	 * @return Completes once the voice is used, at once if it is warm in the voice pool, or fails if it cannot be loaded
+	 */
+	public CompletableFuture<Void> selectVoice(String voice) {
+		selectedVoice = voice;
+		if (voicePool == null) {
+			setVoice(voice);
+			return CompletableFuture.completedFuture(null);
+		}
+		return voicePool.warm(voice).thenAccept(selected -> {
+			// A voice selected later may have loaded first
+			if (voice.equals(selectedVoice))
+				marytts = selected;
+		});
+	}
+
+	/**
+	 * Keep a warmed up MaryTTS for each voice, so selectVoice switches voices at once
+	 *
+	 * @param voicePool
+	 *            The pool, or null to set the voice of a single MaryTTS
+	 */
+	public void setVoicePool(VoicePool voicePool) {
+		this.voicePool = voicePool;
+	}
+
+	/**
+	 * @return the pool of voices used by selectVoice, or null
+	 */
+	public VoicePool getVoicePool() {
+		return voicePool;
+	}
+
+	/**
+	 * Cache the audio of sentences read with speakSentences, so they play at once when they are read again
+	 *
+	 * @param audioCache
+	 *            The cache, or null to synthesize every sentence
+	 */
+	public void setAudioCache(AudioCache audioCache) {
+		this.audioCache = audioCache;
+	}
+
 }
@@ -0,0 +1,170 @@
+package Libraries.MaryTTS.Tutorial;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioInputStream;
+
+import marytts.LocalMaryInterface;
+import marytts.MaryInterface;
+import marytts.exceptions.MaryConfigurationException;
+import marytts.exceptions.SynthesisException;
+
+/**
+ * Keeps a warmed up MaryTTS for each of several voices, so switching voices does not load a voice on the speaking
+ * path.
+ * <p>
+ * Each voice gets its own MaryTTS, which is warmed up by synthesizing a short text on a low priority warmer thread.
+ * A voice is loaded once and kept for as long as the program runs. MaryTTS keeps the data of every voice it has
+ * loaded in a registry of its own, so dropping the MaryTTS of a voice would not give that memory back.
+ * <p>
+ * Voices warmed with {@link #warmAll(Collection)} wait behind the ones warmed one at a time, so a voice the user asks
+ * for is never queued behind the whole list.
+ *
+ */
+public class VoicePool {
+
+	private static final String WARM_UP_TEXT = "Hello.";
+
+	private final Map<String, MaryInterface> voices = new HashMap<>();
+	private final Map<String, CompletableFuture<MaryInterface>> loading = new HashMap<>();
+	private final ArrayDeque<String> background = new ArrayDeque<>(); // Voices left to warm with warmAll
+	private final ExecutorService warmer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Voice warmer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY); // Stays out of the way of synthesis and playback
+		return thread;
+	});
+
+	/**
+	 * Warms up a voice if it is not warm, ahead of the voices left by {@link #warmAll(Collection)}
+	 *
+	 * @param voice
+	 *            Name of the voice
+	 * @return The MaryTTS for the voice, completed at once if the voice is warm, or failed if it cannot be loaded
+	 */
+	public synchronized CompletableFuture<MaryInterface> warm(String voice) {
+		MaryInterface marytts = voices.get(voice);
+		if (marytts != null) {
+			return CompletableFuture.completedFuture(marytts);
+		}
+		CompletableFuture<MaryInterface> future = loading.get(voice);
+		if (future == null) {
+			CompletableFuture<MaryInterface> created = new CompletableFuture<>();
+			loading.put(voice, created);
+			warmer.execute(() -> load(voice, created));
+			future = created;
+		}
+		return future;
+	}
+
+	/**
+	 * Warms up voices in the background, returns at once
+	 *
+	 * @param names
+	 *            Names of the voices, in the order to warm them
+	 */
+	public synchronized void warmAll(Collection<String> names) {
+		boolean idle = background.isEmpty();
+		background.addAll(names);
+		if (idle) {
+			warmer.execute(this::warmNextInBackground);
+		}
+	}
+
+	/**
+	 * The MaryTTS for a voice if it is warm
+	 *
+	 * @param voice
+	 *            Name of the voice
+	 * @return The MaryTTS, or null if the voice is not warm
+	 */
+	public synchronized MaryInterface getIfWarm(String voice) {
+		return voices.get(voice);
+	}
+
+	/**
+	 * @param voice
+	 *            Name of the voice
+	 * @return True if the voice is warm
+	 */
+	public synchronized boolean isWarm(String voice) {
+		return voices.containsKey(voice);
+	}
+
+	/**
+	 * @return How many voices are warm and how many are loading
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("Voice pool: %d voices warm, %d loading", voices.size(), loading.size());
+	}
+
+	/**
+	 * Warms up the next voice left by warmAll, then queues itself again behind anything asked for meanwhile, even if
+	 * the voice could not be loaded. Runs on the warmer thread
+	 */
+	private void warmNextInBackground() {
+		String voice;
+		CompletableFuture<MaryInterface> future = new CompletableFuture<>();
+		synchronized (this) {
+			do {
+				voice = background.poll();
+				if (voice == null) {
+					return;
+				}
+			} while (voices.containsKey(voice) || loading.containsKey(voice));
+			loading.put(voice, future);
+		}
+		try {
+			load(voice, future);
+		} finally {
+			synchronized (this) {
+				if (!background.isEmpty()) {
+					warmer.execute(this::warmNextInBackground);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes and warms up the MaryTTS for a voice, the future is always completed and the voice is no longer loading
+	 * afterwards. Runs on the warmer thread
+	 */
+	private void load(String voice , CompletableFuture<MaryInterface> future) {
+		long startTime = System.nanoTime();
+		try {
+			MaryInterface marytts = new LocalMaryInterface();
+			marytts.setVoice(voice);
+			try (AudioInputStream audio = marytts.generateAudio(WARM_UP_TEXT)) {
+				audio.readAllBytes(); // The first synthesis loads what the voice loads lazily
+			}
+			synchronized (this) {
+				loading.remove(voice);
+				voices.put(voice, marytts);
+				Logger.getLogger(getClass().getName()).log(Level.INFO, "Warmed up " + voice + " in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms. " + this);
+			}
+			future.complete(marytts);
+		} catch (MaryConfigurationException | SynthesisException | IOException | RuntimeException ex) {
+			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Could not load voice " + voice, ex);
+			future.completeExceptionally(ex);
+		} finally {
+			synchronized (this) {
+				loading.remove(voice);
+			}
+			// Does nothing if the future is done, only an Error such as running out of memory gets here without
+			future.completeExceptionally(new IllegalStateException("Could not load voice " + voice));
+		}
+	}
+
+}
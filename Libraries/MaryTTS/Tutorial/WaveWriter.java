@@ -0,0 +1,156 @@
+package Libraries.MaryTTS.Tutorial;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Writes PCM audio to a WAV file as it is synthesized, so nothing longer than one copy buffer is held in memory.
+ * <p>
+ * The header is written first with the sizes left at zero, and filled in by {@link #close()} once the length of the
+ * audio is known.
+ *
+ */
+public class WaveWriter implements Closeable {
+
+	private static final int HEADER_SIZE = 44;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long MAX_DATA_BYTES = 0xFFFFFFFFL - ( HEADER_SIZE - 8 ); // The RIFF sizes are 32 bits
+
+	private final FileChannel channel;
+	private final AudioFormat format;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private long dataBytes;
+
+	/**
+	 * Creates or truncates a file and writes the header
+	 *
+	 * @param file
+	 *            The file
+	 * @param format
+	 *            Format of the audio, as returned by {@link #waveFormatOf(AudioFormat)}
+	 * @throws IOException
+	 *             If the file cannot be written
+	 * @throws IllegalArgumentException
+	 *             If WAV cannot hold the format as it is
+	 */
+	public WaveWriter(Path file , AudioFormat format) throws IOException {
+		if (!format.matches(waveFormatOf(format))) {
+			throw new IllegalArgumentException("Not a WAV format: " + format);
+		}
+		this.format = format;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			writeHeader();
+			channel.position(HEADER_SIZE); // The audio goes after the header
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * The PCM format WAV stores audio of a format in, which is little endian and unsigned for 8 bit samples only
+	 *
+	 * @param format
+	 *            Format of the audio
+	 * @return The format to convert the audio to before writing it, the same one if it needs no conversion
+	 */
+	public static AudioFormat waveFormatOf(AudioFormat format) {
+		int bits = format.getSampleSizeInBits();
+		AudioFormat.Encoding encoding = ( bits == 8 ) ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+		return new AudioFormat(encoding, format.getSampleRate(), bits, format.getChannels(), format.getChannels() * ( ( bits + 7 ) / 8 ),
+				format.getSampleRate(), false);
+	}
+
+	/**
+	 * Appends all the audio in a stream, a buffer at a time
+	 *
+	 * @param audio
+	 *            Audio in the format the writer was created with, it is not closed
+	 * @return Bytes appended
+	 * @throws IOException
+	 *             If the stream cannot be read or the file written, or the file would be too long for WAV
+	 */
+	public long write(InputStream audio) throws IOException {
+		long appended = 0;
+		byte[] array = buffer.array();
+		for (int read = audio.read(array); read >= 0; read = audio.read(array)) {
+			if (dataBytes + read > MAX_DATA_BYTES) {
+				throw new IOException("Audio is too long for a WAV file");
+			}
+			buffer.clear().limit(read);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			dataBytes += read;
+			appended += read;
+		}
+		return appended;
+	}
+
+	/**
+	 * @return The format of the audio
+	 */
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return Bytes of audio written so far
+	 */
+	public long getDataBytes() {
+		return dataBytes;
+	}
+
+	/**
+	 * @return Seconds of audio written so far
+	 */
+	public double getSeconds() {
+		return (double) dataBytes / format.getFrameSize() / format.getFrameRate();
+	}
+
+	/**
+	 * Fills in the sizes in the header and closes the file
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (channel.isOpen()) {
+				writeHeader();
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the header at the start of the file with the current sizes
+	 */
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(new byte[] { 'R', 'I', 'F', 'F' }).putInt((int) ( HEADER_SIZE - 8 + dataBytes ));
+		header.put(new byte[] { 'W', 'A', 'V', 'E' });
+		header.put(new byte[] { 'f', 'm', 't', ' ' }).putInt(16);
+		header.putShort((short) 1); // PCM
+		header.putShort((short) format.getChannels());
+		header.putInt((int) format.getSampleRate());
+		header.putInt((int) ( format.getSampleRate() * format.getFrameSize() )); // Bytes per second
+		header.putShort((short) format.getFrameSize());
+		header.putShort((short) format.getSampleSizeInBits());
+		header.put(new byte[] { 'd', 'a', 't', 'a' }).putInt((int) dataBytes);
+		header.flip();
+		long position = 0;
+		while (header.hasRemaining()) {
+			position += channel.write(header, position);
+		}
+	}
+
+}
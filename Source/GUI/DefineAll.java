@@ -0,0 +1,135 @@
+package Source.GUI;
+
+import Source.Logic.DictionaryBackend;
+import Source.Logic.DocumentText;
+import Source.Logic.Glossary;
+import Source.Logic.WorkerMonitor;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import javax.swing.text.Document;
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+// Defines every distinct word of the document, or of the selection if there is one, and shows them as a glossary
+// Progress is shown as words are defined, with a cancel button, and the glossary can be saved as a text file
+public class DefineAll {
+    // Limits on lookups that go to a dictionary server, set with -Dillud.glossary.maxLookups and
+    // -Dillud.glossary.lookupsPerSecond
+    private static final int MAX_LOOKUPS = Integer.getInteger("illud.glossary.maxLookups", 4);
+    private static final double LOOKUPS_PER_SECOND =
+            Double.parseDouble(System.getProperty("illud.glossary.lookupsPerSecond", "5"));
+
+    private SwingWorker<Glossary.Report, String> worker;            // Defines the words off the EDT
+
+    // Defines the words of area, replacing any glossary still being made
+    public void activate(Component component, JTextArea area){
+        if(worker != null){
+            worker.cancel(true);                                    // Only the latest glossary is made
+        }
+        Document doc = area.getDocument();
+        int start = area.getSelectionStart();
+        int length = area.getSelectionEnd() - start;
+        if(length == 0){                                            // Nothing selected, defines the whole document
+            start = 0;
+            length = doc.getLength();
+        }
+        int from = start;
+        int count = length;
+        DictionaryBackend backend = Dictionary.getBackend();
+        ProgressMonitor monitor = new ProgressMonitor(component, "Defining words with the " + backend.getName(),
+                "Finding words...", 0, 100);
+
+        worker = new SwingWorker<>() {
+            @Override
+            protected Glossary.Report doInBackground() throws Exception {
+                List<String> words = readWords(doc, from, count);
+                Glossary glossary = new Glossary(backend, MAX_LOOKUPS, LOOKUPS_PER_SECOND);
+                return glossary.define(words, (word, done, total) -> {
+                    publish(word + " (" + done + " of " + total + ")");
+                    setProgress(100 * done / total);
+                });
+            }
+
+            @Override
+            protected void process(List<String> chunks) {
+                if(!isDone()){
+                    monitor.setNote(chunks.get(chunks.size() - 1)); // Latest word defined
+                }
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                if(isCancelled()){
+                    return;
+                }
+                try {
+                    show(component, get());
+                } catch (CancellationException | InterruptedException e) {
+                    // Cancelled, nothing to show
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(component, "Error: " + e.getCause() + "\n");
+                }
+            }
+        };
+        WorkerMonitor.watch(worker, monitor);
+        worker.execute();
+    }
+
+    // Distinct words of part of a document, which is not edited while they are read
+    private static List<String> readWords(Document doc, int start, int length){
+        List<String> words = new ArrayList<>();
+        doc.render(() -> words.addAll(Glossary.distinctWords(
+                new DocumentText(doc, start, Math.min(length, doc.getLength() - start)))));
+        return words;
+    }
+
+    // Shows a glossary in a dialog of its own, with a button to save it
+    private static void show(Component component, Glossary.Report report){
+        JTextArea text = new JTextArea(report.getText());
+        text.setEditable(false);
+        text.setCaretPosition(0);                                   // Scrolls to the first word
+
+        JDialog dialog = new JDialog();
+        JButton save = new JButton("Save");
+        save.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if(chooser.showSaveDialog(dialog) == JFileChooser.APPROVE_OPTION){
+                try {
+                    Files.writeString(chooser.getSelectedFile().toPath(), report.getText(), StandardCharsets.UTF_8);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(dialog, "I/O Error: " + ex.getMessage() + "\n");
+                }
+            }
+        });
+        JButton close = new JButton("Close");
+        close.addActionListener(e -> dialog.dispose());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(save);
+        buttons.add(close);
+
+        dialog.setTitle("Glossary");
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.getContentPane().add(new JScrollPane(text), BorderLayout.CENTER);
+        dialog.getContentPane().add(buttons, BorderLayout.SOUTH);
+        dialog.setSize(800, 400);
+        dialog.setLocationRelativeTo(component);
+        dialog.setVisible(true);
+    }
+}
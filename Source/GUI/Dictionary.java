@@ -12,19 +12,27 @@ import javax.swing.JComponent;
 import javax.swing.JOptionPane;
 
 // File
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.HashMap;
-
-import groovy.json.JsonException;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONArray;
-import org.json.simple.parser.ParseException;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// Listener imports
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+// Logic imports
+import Source.Logic.DictionaryBackend;
+import Source.Logic.DictionaryEntry;
+import Source.Logic.HttpDictionary;
+import Source.Logic.LocalDictionary;
 
 public class
 Dictionary extends JDialog {
@@ -35,20 +43,29 @@ Dictionary extends JDialog {
     private JTextField wordInputTextField;
     private JTextArea definitionJTextArea;
 
-    // JSON variables
-    private final JSONParser jsonParser;
+    // Can be pointed at another server with -Dillud.dictionary.url
+    private static final String API_SOURCE = System.getProperty("illud.dictionary.url",
+            "https://api.dictionaryapi.dev/api/v2/entries/en/");
 
-    // Keys to get each part of the dictionary entry
-    private static final String PHONETIC = "phonetic";
-    private static final String WORD = "word";
-    private static final String MEANINGS = "meanings";
-    private static final String SPEECH_PART = "partOfSpeech";
-    private static final String DEFINITIONS = "definitions";
-    private static final String DEFINITION = "definition";
-    private static final String API_SOURCE = "https://api.dictionaryapi.dev/api/v2/entries/en/";
-    private static HashMap<String, String> displayMap;
+    // Cache of looked up words, kept in the user's home folder across restarts
+    private static final Path CACHE_FILE = Path.of(System.getProperty("user.home"), ".illud", "dictionary.cache");
+    private static final long CACHE_TIME_TO_LIVE = TimeUnit.DAYS.toMillis(30);
+    private static final long CACHE_MEMORY_LIMIT = 1 << 22;        // Characters of responses kept parsed in memory
+
+    // Lookups run in the background, a slow server is given up on instead of freezing the dialog
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(10);
+
+    // Word list used instead of the server when there is one, set with -Dillud.dictionary.file
+    // -Dillud.dictionary.backend=local or http picks one of them whether there is a word list or not
+    private static final Path WORD_LIST = Path.of(System.getProperty("illud.dictionary.file",
+            Path.of(System.getProperty("user.home"), ".illud", "dictionary.tsv").toString()));
+    private static final String BACKEND = System.getProperty("illud.dictionary.backend", "");
+
+    private static DictionaryBackend backend;                       // Shared by every dialog, so lookups are too
+    private CompletableFuture<List<DictionaryEntry>> pending;       // Lookup being waited on, or null
+    private long lookupCount;                                       // Identifies the latest lookup
 
-    private StringBuffer resultSB;  // String buffer used to build result string
     private int queryHash;  // Used to check if query changed or not
 
     public Dictionary() {
@@ -61,6 +78,16 @@ Dictionary extends JDialog {
         buttonCancel.addActionListener(e -> onCancel());
         wordInputTextField.addActionListener(e -> onDefine());
 
+        // A lookup of a word that has since changed is not worth waiting for
+        wordInputTextField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { cancelLookup(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { cancelLookup(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { }
+        });
+
         // call onCancel() when cross is clicked
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
@@ -73,22 +100,33 @@ Dictionary extends JDialog {
         this.setLocationRelativeTo(null);                       // Centers Dialog
         this.setTitle("Dictionary");                            // Sets Dialog Title
 
-        // JSON Variables
-        jsonParser = new JSONParser(); // JSON parser
+        queryHash = -1;
+        getBackend();
+    }
 
-        // Used to display values of each part of a dictionary definition
-        displayMap = new HashMap<>();
-        displayMap.put(PHONETIC, "Pronunciation");
-        displayMap.put(WORD, "Word");
-        displayMap.put(SPEECH_PART, "Part of Speech");
-        displayMap.put(DEFINITIONS, "Definitions");
-        displayMap.put(DEFINITION, "Definition");
+    // Backend every lookup goes through, made the first time it is needed
+    public static synchronized DictionaryBackend getBackend(){
+        if(backend == null){
+            backend = createBackend();
+        }
+        return backend;
+    }
 
-        queryHash = -1;
+    // Local word list if there is one or it was asked for, otherwise the dictionary server
+    private static DictionaryBackend createBackend(){
+        if(BACKEND.equals("local") || (!BACKEND.equals("http") && Files.isRegularFile(WORD_LIST))){
+            try{
+                return LocalDictionary.open(WORD_LIST);
+            } catch (IOException e){
+                e.printStackTrace();                                // Falls back to the server
+            }
+        }
+        return new HttpDictionary(API_SOURCE, CONNECT_TIMEOUT, READ_TIMEOUT,
+                CACHE_FILE, CACHE_TIME_TO_LIVE, CACHE_MEMORY_LIMIT);
     }
 
     // onDefine Function
-    // Will initiate reading online JSON File and output to the JTextArea
+    // Will look the word up in the dictionary and output to the JTextArea
     private void onDefine() {
         String input = wordInputTextField.getText();
         // Checks for valid and changed input
@@ -96,7 +134,7 @@ Dictionary extends JDialog {
             if(input.hashCode() != queryHash){
                 queryHash = input.hashCode();                       // Sets input hash to new hash
                 definitionJTextArea.setText(null);                  // Clear text area for new output
-                readJSON(input);                                    // Display definition
+                lookUp(input);                                      // Display definition
                 this.getRootPane().setDefaultButton(buttonDefine);  // Sets default button to last pressed one
             }
             definitionJTextArea.setCaretPosition(0);                // Scrolls to top or first definition
@@ -105,35 +143,71 @@ Dictionary extends JDialog {
 
     // Will Close Window when initiated
     private void onCancel() {
+        cancelLookup();
         dispose();
         this.getRootPane().setDefaultButton(buttonCancel);  // Sets default button to last pressed one
     }
 
-    // Read JSON File from "https://api.dictionaryapi.dev/api/v2/entries/en/insertWordHere"
-    private void readJSON(String input){
-        // Getting information from online JSON File
-        try {
-            // Url is from unofficial Google dictionary API
-            URL url = new URL(API_SOURCE + input); //Creates URL Object
-            BufferedReader reader = new BufferedReader(new InputStreamReader((url.openStream())));  //Reads URL
-
-            resultSB = new StringBuffer();
-            String output = parseDictionaryJSON(jsonParser.parse(reader));
-            definitionJTextArea.setText(output);
+    // Looks the word up in the dictionary backend
+    // Words that are at hand, in the local word list or the cache, are shown at once, others are looked up in the
+    // background and shown once they arrive, if no other word was looked up since
+    private void lookUp(String input){
+        cancelLookup();
+        CompletableFuture<List<DictionaryEntry>> lookup = backend.lookup(input);
+        if(lookup.isDone()){
+            showEntries(input, lookup.getNow(null), null);
+            return;
+        }
+        long count = ++lookupCount;
+        definitionJTextArea.setText("Looking up \"" + input + "\"...");
+        pending = lookup;
+        pending.whenComplete((entries, error) -> SwingUtilities.invokeLater(() -> {
+            if(count == lookupCount){                               // Only the latest lookup is shown
+                pending = null;
+                showEntries(input, entries, error);
+            }
+        }));
+    }
+
+    // Shows the entries found for a word, or what went wrong, called on the EDT
+    private void showEntries(String input, List<DictionaryEntry> entries, Throwable error){
+        definitionJTextArea.setText(null);
+        if(error instanceof CompletionException){
+            error = error.getCause();
+        }
+        if(error instanceof CancellationException){
+            return;
+        }
+        if(error != null || entries.isEmpty()){
+            queryHash = -1;                                         // Looks the word up again if it did not work
         }
         //Exceptions
-        catch (MalformedURLException e){
-            JOptionPane.showMessageDialog(this, "Malformed URL: "  + e.getMessage() + "\n");
+        if(error instanceof HttpTimeoutException){
+            JOptionPane.showMessageDialog(this, "Timed out: the dictionary did not answer in time\n");
+        }
+        else if(error instanceof IOException){
+            JOptionPane.showMessageDialog(this, "I/O Error: " + error.getMessage() + "\n");
         }
-        catch(FileNotFoundException e){
-            JOptionPane.showMessageDialog(this,
-                    "No definitions found for: " + wordInputTextField.getText() + "\n");
+        else if(error != null){
+            JOptionPane.showMessageDialog(this, "Error: " + error + "\n");
         }
-        catch (ParseException e){
-            JOptionPane.showMessageDialog(this, "Parse Error :" + e.getMessage() + "\n");
+        else if(entries.isEmpty()){
+            JOptionPane.showMessageDialog(this, "No definitions found for: " + input + "\n");
         }
-        catch (IOException e){
-            JOptionPane.showMessageDialog(this, "I/O Error: " + e.getMessage() + "\n");
+        else{
+            definitionJTextArea.setText(DictionaryEntry.render(entries));
+            definitionJTextArea.setCaretPosition(0);                // Scrolls to top or first definition
+        }
+    }
+
+    // Stops waiting for the running lookup, its result is never shown
+    private void cancelLookup(){
+        if(pending != null){
+            pending.cancel(false);
+            pending = null;
+            lookupCount++;
+            queryHash = -1;                                         // The word was never shown
+            definitionJTextArea.setText(null);
         }
     }
 
@@ -143,81 +217,4 @@ Dictionary extends JDialog {
         this.onDefine();
         this.setVisible(true);
     }
-
-    // Recursive function for parsing the dictionary JSON file
-    private String parseDictionaryJSON(Object o){
-        try{
-            if(o instanceof JSONObject){                        // If is JSONObject
-                getDictionaryEntry((JSONObject)o);              // Cast o to JSONObject and get dictionary results
-            } else if (o instanceof JSONArray){                 // If is JSONArray
-                for(Object obj : (JSONArray)o){                 // Cast o to JSONArray and get dictionary results
-                    parseDictionaryJSON(obj);
-                }
-            }
-        } catch (JsonException jsonException){
-            jsonException.printStackTrace();
-        }
-        return resultSB.toString();
-    }
-
-    // Displays
-    private void getDictionaryEntry(JSONObject jsonObject){
-        // Meanings is another JSONArray array inside the object
-        JSONArray meanings = (JSONArray)jsonObject.get(MEANINGS);
-
-        // Appends each String for each part of the JSON file
-        appendJSONStringFromKey(jsonObject, WORD);
-        appendJSONStringFromKey(jsonObject, PHONETIC);
-        appendJSONStringFromKey(jsonObject, MEANINGS);
-
-        // Count of array elements
-        int partOfSpeechCount = 1;
-        int definitionCount = 1;
-
-        // For each meaning
-        for(Object meaning: meanings){
-            JSONObject meaningObj = (JSONObject)meaning; // Cast to JSONObject
-            appendJSONStringFromKey(meaningObj, SPEECH_PART, partOfSpeechCount++, 1); // Add formatted string
-
-            // Definitions is yet another array inside meanings
-            JSONArray definitions = (JSONArray)meaningObj.get(DEFINITIONS);
-            // For each definition
-            for(Object o : definitions){
-                JSONObject defObj = (JSONObject) o; // Cast to JSONObject
-                appendJSONStringFromKey(defObj, DEFINITION, definitionCount++, 2);
-            }
-        }
-    }
-
-    // Appends String from JSONObject from key if it exists to string buffer object
-    private void appendJSONStringFromKey(JSONObject jsonObject, String key){
-        Object o = jsonObject.get(key);
-        if(o instanceof String){                                    // Simple entry
-            // Appends formatted string to string buffer
-            // Append is used multiple times instead of concatenation since string buffer has better performance
-            resultSB.append(displayMap.get(key));
-            resultSB.append(": ");
-            resultSB.append(o);
-            resultSB.append("\n");
-        }
-        // Not string or null, so nothing happens
-    }
-
-    // Appends String from JSONObject from key if it exists to string buffer object
-    // Prints formatted index of array with tabbing
-    private void appendJSONStringFromKey(JSONObject jsonObject, String key, int index, int num_tabs){
-        Object o = jsonObject.get(key);
-        if(o instanceof String){                        // Simple entry
-            // Appends string to string buffer
-            // Append is used multiple times instead of concatenation since string buffer has better performance
-            resultSB.append("\t".repeat(num_tabs));     // Appends num_tabs tabs
-            resultSB.append(displayMap.get(key));
-            resultSB.append(" ");
-            resultSB.append(index);
-            resultSB.append(" : ");
-            resultSB.append(o);
-            resultSB.append("\n");
-        }
-        // Not string or null, so nothing happens
-    }
 }
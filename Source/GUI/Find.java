@@ -11,19 +11,39 @@ import javax.swing.JComponent;
 import javax.swing.JOptionPane;
 import javax.swing.JCheckBox;
 import javax.swing.JFrame;
+import javax.swing.JViewport;
+import javax.swing.SwingWorker;
 import java.awt.Color;
 import javax.swing.border.TitledBorder;
 
+// Util imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
 // Listener imports
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.event.KeyEvent;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+// Logic imports
+import Source.Logic.DocumentText;
+import Source.Logic.InterruptibleText;
+import Source.Logic.MatchIndex;
+import Source.Logic.ParallelSearch;
+import Source.Logic.TextIndex;
+import Source.Logic.TextSearch;
 
 // Regex imports
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 // Highlighter imports
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultHighlighter;
 import javax.swing.text.Highlighter;
 
@@ -40,22 +60,27 @@ public class Find extends JDialog {
     private JTextField replaceField;
     private JCheckBox wordOption;
     private JCheckBox capsOption;
+    private JCheckBox regexOption;
     private final JTextArea area;
 
     // Highlighter components
     private final Highlighter.HighlightPainter currResultHighlight = new highlighter(Color.ORANGE);
     private final Highlighter.HighlightPainter allResultsHighlight = new highlighter(Color.YELLOW);
-    private Highlighter.Highlight[] highlightArr;   // Array of highlights of occurrences
+    private final List<Object> visibleHighlights;   // Highlights of the matches on screen
+    private boolean showResults;                    // Whether matches are being highlighted
     private final Highlighter high;                 // Highlights each element
 
     // Class logic components
     private int index;                              // Current index in search
     private boolean isHidden;                       // Used for when find window is closed to reshow results
-    private int oldTextHash;                        // Used to check if the document changed while hiding
-    private int oldArrChecksum;                     // Same as above
+    private final MatchIndex matches;               // Matches of the last search, kept up to date on edits
+    private final TextIndex textIndex;              // Tells searches which parts of a long document to read
+    private long oldVersion;                        // Used to check if the document changed while hiding
     private boolean oldWordVal;
     private boolean oldCapsVal;
+    private boolean oldRegexVal;
     private String oldQuery;                        // Used to store last user search for find
+    private SearchWorker searchWorker;              // Search running in the background, or null
 
     // Constants
     private static final int DIALOG_WIDTH = 480;
@@ -63,6 +88,11 @@ public class Find extends JDialog {
     private static final int BIG_DIALOG_HEIGHT = 240;
     private static final String SEARCH_DIALOG_TITLE = "Search Results";
     private static final String DEFAULT_TITLE = "Find";
+    private static final String SEARCHING_TITLE = "Searching...";
+    // Longest a search may run before it is stopped, can be changed with -Dillud.find.timeLimitMillis
+    private static final long SEARCH_TIME_LIMIT_MILLIS = Long.getLong("illud.find.timeLimitMillis", 10_000L);
+    private static final long PUBLISH_INTERVAL_NANOS = 100_000_000L;   // How often a search shows its progress
+    private static final int PUBLISH_BATCH = 4096;                      // Most matches shown at once
 
     public Find(JTextArea area) {
         area.setAutoscrolls(true);
@@ -81,16 +111,30 @@ public class Find extends JDialog {
         queryField.addActionListener(e -> onFind());
         replaceField.addActionListener(e -> onReplace());
 
+        // A search for a query that has since changed is not worth finishing
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { cancelSearch(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { cancelSearch(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { }
+        });
+        wordOption.addItemListener(e -> cancelSearch());
+        capsOption.addItemListener(e -> cancelSearch());
+        regexOption.addItemListener(e -> cancelSearch());
+
         // Listener that checks for window closing and opening events
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosed(WindowEvent e) {
                 super.windowClosed(e);
+                cancelSearch();                                         // Stops a search still running
                 isHidden = true;                                        // Find has been opened before and is hidden
                 setLastState();
                 onClear();                                              // Clears the window
                 if(isInstanceValid() && !hasQueryChanged()){
-                    highlightElement(highlightArr[index]);              // Highlights the search result
+                    highlightElement(index);                            // Highlights the search result
                 }
             }
 
@@ -106,32 +150,39 @@ public class Find extends JDialog {
         });
 
         // Keyboard Listeners
-        contentPane.registerKeyboardAction(e -> dispose(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0),
+        contentPane.registerKeyboardAction(e -> onEscape(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0),
                 JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
 
         setPanelVis(false);                 // Cannot access some GUI elements initially
         this.setLocationRelativeTo(null);   // Centers dialog
         high = area.getHighlighter();       // Class highlighter variable
+        matches = new MatchIndex(area.getDocument());
+        textIndex = new TextIndex(area.getDocument());
+        area.addPropertyChangeListener("document", e -> {
+            matches.setDocument(area.getDocument());
+            textIndex.setDocument(area.getDocument());
+        });
+        visibleHighlights = new ArrayList<>();
+        if(area.getParent() instanceof JViewport){      // Highlights follow the visible part of the text area
+            ((JViewport) area.getParent()).addChangeListener(e -> refreshHighlights());
+        }
         isHidden = false;                   // Is not in hidden state
         oldQuery = "";                      // Initializes query storage
     }
 
     // Runs on find
+    // The results of a new search are shown by showSearchResults once it is done, which may be after this returns
     private void onFind() {
         String newQuery = queryField.getText(); // Text in find bar
         if (!newQuery.isEmpty()) {
-            if(hasQueryChanged() | hasStateChanged()){
-                highlightText(newQuery);
-                if(highlightArr.length > 0){
-                    index = ((index < highlightArr.length) ? index : 0);
-                    scrollToQuery(highlightArr[index]);
-                }
-                else{
-                    JOptionPane.showMessageDialog(this,
-                            "Error: No results found for: \"" + newQuery + "\"",
-                            SEARCH_DIALOG_TITLE, JOptionPane.INFORMATION_MESSAGE);
-                    high.removeAllHighlights();
-                    newQuery += "<{";
+            // A search that was cancelled or is still running has no usable results
+            boolean changed = hasQueryChanged() | hasStateChanged() | !matches.isComplete()
+                    | matches.getSearch() == null;
+            setLastState();
+            oldQuery = newQuery;
+            if(changed){
+                if(!highlightText(newQuery, true)){
+                    oldQuery += "<{";                                   // Invalid regex, searches again next time
                 }
             } else{
                 changeInstance(index, 0);
@@ -141,18 +192,27 @@ public class Find extends JDialog {
                     "Error: No input detected",
                     SEARCH_DIALOG_TITLE,
                     JOptionPane.ERROR_MESSAGE);
-            high.removeAllHighlights();
+            clearHighlights();
             setPanelVis(false);
+            setLastState();
+            oldQuery = newQuery;
+        }
+    }
+
+    // Esc stops a running search first, and closes the dialog when there is none
+    private void onEscape() {
+        if(searchWorker != null){
+            cancelSearch();
+        } else{
+            dispose();
         }
-        setLastState();
-        oldQuery = newQuery;
     }
 
     // Previous instance of found string
     private void onPrev() {
         if(isInstanceValid() && !hasQueryChanged()){
             // Determines new index based on old index and looping
-            int newIdx = (index == 0) ? highlightArr.length - 1 : (index - 1);
+            int newIdx = (index == 0) ? matches.size() - 1 : (index - 1);
             changeInstance(index, newIdx);
             this.getRootPane().setDefaultButton(prevButton); // Sets default button to last pressed one
         } else{
@@ -164,7 +224,7 @@ public class Find extends JDialog {
     private void onNext() {
         if(isInstanceValid() && !hasQueryChanged()){
             // Determines new index based on old index and looping
-            int newIdx = (index == highlightArr.length - 1) ? 0 : (index + 1);
+            int newIdx = (index == matches.size() - 1) ? 0 : (index + 1);
             changeInstance(index, newIdx);
             this.getRootPane().setDefaultButton(nextButton); // Sets default button to last pressed one
         } else{
@@ -174,24 +234,25 @@ public class Find extends JDialog {
 
     // Next instance of found string
     private void onClear() {
-        high.removeAllHighlights();
+        showResults = false;
+        clearHighlights();
         setPanelVis(false);
     }
 
     // Replace current instance
     private void onReplace(){
-        StringBuilder sb = new StringBuilder(area.getText());               // New string builder
-        int startPos = highlightArr[index].getStartOffset();
-        int endPos = highlightArr[index].getEndOffset();
-        area.setText(                                                       // Setting text of main text area
-                sb.replace(startPos,                                        // Replace the substring from startPos
-                        endPos,                                             // to endPos
-                        replaceField.getText()).toString()                  // with what is in replace field
-        );
-        int oldIndex = index;                                               // Saves current index
-        highlightText(queryField.getText());                                // Gets new text and highlights it
-        if(--oldIndex > 0){                                                 // If oldIndex can be decremented safely
-            changeInstance(index, oldIndex);                                // Move cursor to old spot
+        if(!isInstanceValid() || !matches.isComplete()){                    // Not while still searching
+            return;
+        }
+        int startPos = matches.getStart(index);
+        int endPos = matches.getEnd(index);
+        try{
+            // Replaces only the match, rather than setting the whole text
+            ((AbstractDocument) area.getDocument()).replace(startPos, endPos - startPos,
+                    replaceField.getText(), null);
+        } catch (BadLocationException e) { e.printStackTrace(); }
+        if(index - 1 > 0){                                                  // If index can be decremented safely
+            index--;                                                        // Move cursor to old spot
         }
         onFind();                                                           // Does new search
         this.getRootPane().setDefaultButton(replaceButton);                 // Sets default button to last pressed one
@@ -200,76 +261,93 @@ public class Find extends JDialog {
     // Replace all instances
     private void onReplaceAll(){
         String replacement = replaceField.getText();                        // String to replace
-        StringBuilder sb = new StringBuilder(area.getText());               // String builder with current text
-        for(int i = highlightArr.length - 1; i > -1; i--){                  // Reversed loop through highlight array
-            sb.replace(highlightArr[i].getStartOffset(),                    // Replace from start
-                    highlightArr[i].getEndOffset(),                         // To finish
-                    replacement);                                           // With replacement text
+        if(!isInstanceValid() || !matches.isComplete()){                   // No finished search to replace
+            return;
         }
-        area.setText(sb.toString());                                        // Sets text to replacement text
+        clearHighlights();                                                  // Would only follow the removed text
+        try{
+            matches.replaceAll(replacement);                                // Replaces every match in one edit
+        } catch (BadLocationException e) { e.printStackTrace(); }
         onFind();                                                           // Does new search
         this.getRootPane().setDefaultButton(replaceAllButton);              // Sets default button to last pressed one
     }
 
-    // Sets the highlight for a single element
-    private void setHighlight(int index, Highlighter.HighlightPainter p){
-        if(highlightArr != null && index < highlightArr.length){
-            high.removeHighlight(highlightArr[index]);
-            try{
-                highlightArr[index] = (Highlighter.Highlight) high.addHighlight(highlightArr[index].getStartOffset(),
-                        highlightArr[index].getEndOffset(), p);
-            } catch (Exception e) { e.printStackTrace(); }
-            String resultString = "Result: " + (index + 1) + " of " + highlightArr.length;
-            javax.swing.border.TitledBorder titledBorder = javax.swing.BorderFactory.createTitledBorder(resultString);
-            titledBorder.setTitleJustification(TitledBorder.CENTER);
-            findPanel.setBorder(titledBorder);
+    // Shows which result is the current one in the border title
+    private void setResultTitle(){
+        String resultString = "Result: " + (index + 1) + " of " + matches.size();
+        if(!matches.isComplete()){
+            resultString += "...";                                      // More may still be found
         }
+        javax.swing.border.TitledBorder titledBorder = javax.swing.BorderFactory.createTitledBorder(resultString);
+        titledBorder.setTitleJustification(TitledBorder.CENTER);
+        findPanel.setBorder(titledBorder);
     }
 
-    // Overloaded function that sets highlights for all elements
-    private void setHighlights(Highlighter.HighlightPainter p){
-        high.removeAllHighlights();
-        for(int i = 0; i < highlightArr.length; i++){
+    // Highlights the matches in the visible part of the text area, the rest only get highlights once scrolled to
+    // Runs again whenever the text area scrolls, so the highlighter only ever holds a screen of matches
+    private void refreshHighlights(){
+        clearHighlights();
+        if(!showResults || !isInstanceValid()){
+            return;
+        }
+        java.awt.Rectangle visible = area.getVisibleRect();
+        int first = area.viewToModel2D(new java.awt.Point(0, visible.y));
+        int last = area.viewToModel2D(new java.awt.Point(area.getWidth(), visible.y + visible.height));
+        if(first < 0 || last < 0){                                      // Not laid out yet
+            return;
+        }
+        for(int i = matches.indexAfter(first); i < matches.size() && matches.getStart(i) <= last; i++){
             try{
-                highlightArr[i] = (Highlighter.Highlight) high.addHighlight(highlightArr[i].getStartOffset(),
-                        highlightArr[i].getEndOffset(), p);
-            } catch (Exception e) { e.printStackTrace(); }
+                visibleHighlights.add(high.addHighlight(matches.getStart(i), matches.getEnd(i),
+                        (i == index) ? currResultHighlight : allResultsHighlight));
+            } catch (BadLocationException e) { e.printStackTrace(); }
         }
     }
 
+    // Removes the highlights of this dialog, leaving any others
+    private void clearHighlights(){
+        for(Object tag : visibleHighlights){
+            high.removeHighlight(tag);
+        }
+        visibleHighlights.clear();
+    }
+
     // Run by onNext and onPrev, generalizes their actions before their core code
+    // The first results of a search that is still running can already be stepped through
     private boolean isInstanceValid(){
-        return highlightArr != null && highlightArr.length > 0;
+        return matches.getSearch() != null && !matches.isDirty() && matches.size() > 0;
     }
 
     // Returns if the search query has changed, depending on the checkbox modifiers as well
     private boolean hasQueryChanged(){
         boolean wordChanged = (oldWordVal != wordOption.isSelected());
         boolean capsChanged = (oldCapsVal != capsOption.isSelected());
+        boolean regexChanged = (oldRegexVal != regexOption.isSelected());
         boolean queryChanged = !oldQuery.equals(queryField.getText());
-        return wordChanged | capsChanged | queryChanged;
+        return wordChanged | capsChanged | regexChanged | queryChanged;
     }
 
     // Run by onNext and onPrev, generalizes their actions after their core code
     private void changeInstance(int oldIndex, int newIndex){
         if(isInstanceValid() && !hasQueryChanged()){
             if(newIndex != oldIndex){ // Only runs if new and old indexes differ
-                setHighlight(index, allResultsHighlight);
                 index = newIndex;
-                scrollToQuery(highlightArr[index]);
+                scrollToQuery(index);
             }
         }
     }
 
     // Scrolls to query if it is off screen
-    private void scrollToQuery(Highlighter.Highlight h){
-        setHighlight(index, currResultHighlight);                       // Sets current highlight color
-        int pos = h.getEndOffset();
+    private void scrollToQuery(int i){
+        int pos = matches.getEnd(i);
         try{
             java.awt.geom.Rectangle2D view = area.modelToView2D(pos);   // View where pos is visible
             area.scrollRectToVisible(view.getBounds());                 // Scroll to the rectangle
             area.setCaretPosition(pos);                                 // Sets carat position to pos
         } catch (Exception e) {e.printStackTrace();}
+        showResults = true;
+        refreshHighlights();                                            // Sets current highlight color
+        setResultTitle();
     }
 
     private static class highlighter extends DefaultHighlighter.DefaultHighlightPainter {
@@ -278,33 +356,173 @@ public class Find extends JDialog {
         }
     }
 
-    // Initializes highlight array based on pattern
-    private void highlightText(String pattern) {
-        String text = area.getText();                       // Input text
-        String patternCopy = pattern;                       // Copy of pattern used to keep pattern the same
-        if(wordOption.isSelected()){
-            patternCopy = String.format("\\b%s\\b", patternCopy);
-        }
-        patternCopy = String.format("(%s)", patternCopy);
-        if(!capsOption.isSelected()){
-            patternCopy = String.format("(?i)%s", patternCopy);
-        }
-        high.removeAllHighlights();
-        Pattern regexPattern = Pattern.compile(patternCopy);
-        Matcher regexMatcher = regexPattern.matcher(text);
+    // Searches for pattern and highlights the results, returns false if pattern is not a valid regex
+    // The query is plain text unless regex is selected, compiled queries are cached by TextSearch
+    // The document is only searched again if the matches of this query could not be kept up to date, that search
+    // runs in the background and shows its results as they are found
+    // reportEmpty tells the user when nothing was found
+    private boolean highlightText(String pattern, boolean reportEmpty) {
+        clearHighlights();
+        TextSearch search;
         try{
-            while(regexMatcher.find()){
-                high.addHighlight(regexMatcher.start(), regexMatcher.end(), allResultsHighlight); // Add highlight
-            }
-        } catch (Exception e){
-            e.printStackTrace();
+            search = TextSearch.compile(pattern, regexOption.isSelected(),
+                    wordOption.isSelected(), capsOption.isSelected());
+        } catch (PatternSyntaxException e){
+            cancelSearch();
+            JOptionPane.showMessageDialog(this,
+                    "Error: Invalid regular expression: " + e.getDescription(),
+                    SEARCH_DIALOG_TITLE, JOptionPane.ERROR_MESSAGE);
+            matches.clear();                                    // No results
+            setPanelVis(false);
+            return false;
+        }
+        if(matches.getSearch() != search || matches.isDirty() || !matches.isComplete()){
+            startSearch(search, reportEmpty);
+        } else{
+            showSearchResults(reportEmpty);
         }
-        highlightArr = high.getHighlights();            // Populates array of highlights
-        if(highlightArr.length > 0){ // 1+ matches
-            setHighlight(index, currResultHighlight);   // Highlights index 0
+        return true;
+    }
+
+    // Shows the matches of a finished search, or that there were none
+    private void showSearchResults(boolean reportEmpty){
+        if(isInstanceValid()){ // 1+ matches
+            index = ((index < matches.size()) ? index : 0);
+            scrollToQuery(index);                       // Highlights the matches on screen
             setPanelVis(true);                          // Shows GUI elements
         } else{ // 0 matches
+            showResults = false;
+            clearHighlights();
             setPanelVis(false);                         // Hides GUI elements
+            if(reportEmpty){
+                JOptionPane.showMessageDialog(this,
+                        "Error: No results found for: \"" + queryField.getText() + "\"",
+                        SEARCH_DIALOG_TITLE, JOptionPane.INFORMATION_MESSAGE);
+                oldQuery += "<{";                       // Searches again next time
+            }
+        }
+    }
+
+    // Searches the document for search in the background, stopping any search already running
+    private void startSearch(TextSearch search, boolean reportEmpty){
+        cancelSearch();
+        matches.begin(search);
+        showResults = false;
+        setPanelVis(false);
+        javax.swing.border.TitledBorder titledBorder = javax.swing.BorderFactory.createTitledBorder(SEARCHING_TITLE);
+        titledBorder.setTitleJustification(TitledBorder.CENTER);
+        findPanel.setBorder(titledBorder);
+        searchWorker = new SearchWorker(search, reportEmpty);
+        searchWorker.execute();
+    }
+
+    // Stops the running search, its partial results are dropped
+    private void cancelSearch(){
+        if(searchWorker == null){
+            return;
+        }
+        searchWorker.cancel(true);
+        searchWorker = null;
+        matches.clear();
+        onClear();
+    }
+
+    // Finds the matches of a search off the event thread and adds them to matches in batches as they are found
+    // Only the parts of the document the TextIndex points to are read when it can answer the search, otherwise
+    // long documents are searched in parallel segments by ParallelSearch, both read through an InterruptibleText, so
+    // cancelling the worker or going over the time limit stops even a regular expression that would otherwise
+    // backtrack for ever
+    private class SearchWorker extends SwingWorker<Void, int[]> {
+        private final TextSearch search;
+        private final boolean reportEmpty;
+        private final int[] batch;                  // Matches not published yet, as start and end pairs
+        private int batchSize;
+        private boolean publishedFirst;
+        private long lastPublish;
+
+        SearchWorker(TextSearch search, boolean reportEmpty){
+            this.search = search;
+            this.reportEmpty = reportEmpty;
+            batch = new int[PUBLISH_BATCH * 2];
+        }
+
+        // Publishes start and end pairs, the first match on its own so it can be shown straight away
+        @Override
+        protected Void doInBackground(){
+            // Made on this thread, so cancelling the worker also stops the segments searched on other threads
+            CharSequence text = new InterruptibleText(new DocumentText(area.getDocument()), SEARCH_TIME_LIMIT_MILLIS);
+            lastPublish = System.nanoTime();
+            if(!textIndex.findAll(search, text, this::found)){
+                ParallelSearch.findAll(search, text, this::found);
+            }
+            if(batchSize > 0){
+                publish(Arrays.copyOf(batch, batchSize));
+            }
+            return null;
+        }
+
+        // Adds a match to the batch, publishing it when it is full or has waited long enough
+        private void found(int start, int end){
+            batch[batchSize++] = start;
+            batch[batchSize++] = end;
+            long now = System.nanoTime();
+            if(!publishedFirst || batchSize == batch.length || now - lastPublish > PUBLISH_INTERVAL_NANOS){
+                publish(Arrays.copyOf(batch, batchSize));
+                batchSize = 0;
+                publishedFirst = true;
+                lastPublish = now;
+            }
+        }
+
+        // Adds the new matches and shows the count so far, scrolling to the first match once it is found
+        @Override
+        protected void process(List<int[]> batches){
+            if(searchWorker != this){                                   // Cancelled since these were published
+                return;
+            }
+            boolean wasEmpty = (matches.size() == 0);
+            for(int[] batch : batches){
+                for(int i = 0; i < batch.length; i += 2){
+                    matches.add(batch[i], batch[i + 1]);
+                }
+            }
+            if(!isInstanceValid()){                                     // Edited while searching
+                return;
+            }
+            if(wasEmpty){
+                index = 0;
+                scrollToQuery(index);
+            } else{
+                refreshHighlights();                                    // New matches may be on screen
+                setResultTitle();
+            }
+        }
+
+        @Override
+        protected void done(){
+            if(searchWorker != this){                                   // Cancelled, or replaced by a newer search
+                return;
+            }
+            searchWorker = null;
+            try{
+                get();
+            } catch (CancellationException | InterruptedException e){
+                return;
+            } catch (ExecutionException e){
+                matches.clear();
+                onClear();
+                if(e.getCause() instanceof InterruptibleText.TimeLimitException){
+                    JOptionPane.showMessageDialog(Find.this,
+                            "Error: Search stopped after " + SEARCH_TIME_LIMIT_MILLIS / 1000 + " seconds",
+                            SEARCH_DIALOG_TITLE, JOptionPane.ERROR_MESSAGE);
+                } else{
+                    e.printStackTrace();
+                }
+                oldQuery += "<{";                                       // Searches again next time
+                return;
+            }
+            matches.finish();
+            showSearchResults(reportEmpty);
         }
     }
 
@@ -312,46 +530,28 @@ public class Find extends JDialog {
     private void reDisplay(){
         String queryText = queryField.getText();
         if(!queryText.isEmpty()){                                               // There is a query
-            if(hasStateChanged() | hasQueryChanged()){                          // Area or query has changed
-                // Changed
-                int temp = index;                                               // Saves index before doing new search
-                highlightText(queryText);                                       // Searches new text based on old query;
-                index = ((temp < (highlightArr.length)) ? temp : 0);            // Adjusts index to value in array
+            if(hasStateChanged() | hasQueryChanged() | !matches.isComplete()){ // Area or query has changed
+                // Changed, the index is kept if it is still in the new results
+                highlightText(queryText, false);                                // Searches new text based on old query;
             } else{
                 if(isInstanceValid()){                                          // Has matches
-                    scrollToQuery(highlightArr[index]);                         // Moves view box to cursor
+                    scrollToQuery(index);                                       // Moves view box to cursor
                     setPanelVis(true);                                          // Shows GUI elements
                 }
             }
-            setHighlights(allResultsHighlight);                                 // Sets all to highlight color
-            if(isInstanceValid()){
-                setHighlight(index, currResultHighlight);                       // Sets index to current highlight color
-            }
         }
     }
 
-    private void highlightElement(Highlighter.Highlight h){
-        int pos = h.getEndOffset();
+    private void highlightElement(int i){
+        int pos = matches.getEnd(i);
         try{
             java.awt.geom.Rectangle2D view = area.modelToView2D(pos);           // View where pos is visible
             area.scrollRectToVisible(view.getBounds());                         // Scroll to the rectangle
             area.setCaretPosition(pos);                                         // Sets carat position to pos
-            area.moveCaretPosition(h.getStartOffset());                         // Highlights text
+            area.moveCaretPosition(matches.getStart(i));                        // Highlights text
         } catch (Exception e) {e.printStackTrace();}
     }
 
-    // Sum of start and end offsets to ensure no change has occurred
-    private int getHighlightArrCheckSum(){
-        int sum = 0;
-        if(highlightArr != null){
-            for(Highlighter.Highlight h : highlightArr){
-                sum += h.getStartOffset();
-                sum += h.getEndOffset();
-            }
-        }
-        return sum;
-    }
-
     // Sets panel visibility for panels that only appear if there are search results
     private void setPanelVis(boolean isVis){
         // Sets size depending on the GUI elements that are visible
@@ -368,19 +568,18 @@ public class Find extends JDialog {
         this.replacePanel.setVisible(isVis);
     }
 
-    // Returns a boolean value of whether either the text field hash or highlight object array checksum changed
+    // Returns a boolean value of whether the document was edited since the last state was saved
     private boolean hasStateChanged(){
-        boolean textChanged = (oldTextHash != area.getText().hashCode());       // Check for change in text input
-        boolean arrChanged = (oldArrChecksum != getHighlightArrCheckSum());     // Check for change in checksum
+        boolean textChanged = (oldVersion != matches.getVersion());             // Check for edits of the document
         setLastState();                                                         // Saves last state
-        return (textChanged | arrChanged);                                      // Returns true if change was detected
+        return textChanged;                                                     // Returns true if change was detected
     }
 
     // Saves the last state to be used in the above function
     private void setLastState(){
-        oldTextHash = area.getText().hashCode();                                // Saves hash of current document
-        oldArrChecksum = getHighlightArrCheckSum();                             // Saves checksum of highlight array
+        oldVersion = matches.getVersion();                                      // Saves version of current document
         oldWordVal = wordOption.isSelected();
         oldCapsVal = capsOption.isSelected();
+        oldRegexVal = regexOption.isSelected();
     }
 }
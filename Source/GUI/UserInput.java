@@ -4,6 +4,7 @@ package Source.GUI;
 import javax.swing.JPanel;
 import javax.swing.JTextArea;
 import javax.swing.JList;
+import javax.swing.text.Document;
 
 public class UserInput {
     // Class Variables
@@ -15,7 +16,8 @@ public class UserInput {
     public JPanel getMainPanel() { return MainPanel; }
     public JTextArea getMainTextArea() { return mainTextArea; }
     public JList<String> getJList() { return jList; }
-    public void setFile(String text) {
-        mainTextArea.setText(text);
+    public void setDocument(Document doc) {
+        mainTextArea.setDocument(doc);
+        mainTextArea.setCaretPosition(0);
     }
 }
@@ -1,55 +1,79 @@
 package Source.GUI;
 import Libraries.MaryTTS.Tutorial.TextToSpeech;
-import Source.Logic.CounterUtil;
+import Source.Logic.CounterScheduler;
 import Source.Logic.FileOpener;
+import Source.Logic.SpeechLoader;
 
 // GUI Imports
 import javax.swing.event.DocumentEvent;                         // Used for getting jTextArea text
 import javax.swing.event.DocumentListener;                      // Used for creating jTextArea listeners
+import javax.swing.event.MenuEvent;                             // Used for filling the Voice menu
+import javax.swing.event.MenuListener;
 import javax.swing.JFrame;
 import javax.swing.ImageIcon;
 import javax.swing.UIManager;
 import javax.swing.JMenuBar;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JRadioButtonMenuItem;
+import javax.swing.ButtonGroup;
 import javax.swing.JTextArea;
 import javax.swing.JList;
+import javax.swing.JDialog;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.text.AbstractDocument;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Window extends JFrame {
     // Window Variables
     private static final String ICON_PATH = "/Resources/icon.png";  // Path to the icon
     private static final String WIN_NAME = "Illud - Text Analysis"; // Name of the window
+    private static final long COUNTER_DEBOUNCE_MILLIS = 150;        // Quiet time before large edits are recounted
 
     private Find find;                                              // Find dialog
     private Dictionary dictionary;                                  // Dictionary dialog
+    private DefineAll defineAll;                                    // Makes glossaries of the text
     private About about;                                            // About dialog
     private FileOpener fileOpener;                                  // Opens files
 
     // JMenuItems to add listeners to in the menu
     private JMenuItem open_menu_item;
     private JMenuItem dict_menu_item;
+    private JMenuItem define_all_menu_item;
     private JMenuItem find_menu_item;
     private JMenuItem tts_menu_item;
+    private JMenuItem tts_pause_menu_item;
+    private JMenuItem tts_skip_menu_item;
     private JMenuItem about_menu_item;
+    private JMenu voice_menu;                                       // Filled with the voices once speech loads
 
     // UserInput variables
     private UserInput userInput;                                    // Form for user input
+    private CounterScheduler counterScheduler;                      // Keeps counts up to date as the text is edited
 
     // Text to Speech Variables
-    private final TextToSpeech tts;                                 // Text to speech object
+    private final SpeechLoader speech;                              // Loads text to speech in the background
     private final float volume;                                     // Volume of Text To Speech
-
-    // Enum for getting strings corresponding to different voices
-    private enum Voice{
-        poppy("dfki-poppy-hsmm");
-//        rms("cmu-rms-hsmm"),
-//        slt("cmu-slt-hsmm");
-        public final String voiceString;                            // Unmodifiable value
-        Voice(String vS){                                           // Enum constructor
-            this.voiceString = vS;
-        }
-    }
+    private String waitingText;                                     // Text to read once speech loads, or null
+    private JDialog loadingDialog;                                  // Shown while waiting for speech to load
+    private boolean voicesListed;                                   // True once the Voice menu has been filled
+    private boolean voiceMenuPending;                               // True while the menu waits for speech to load
+
+    // -Dillud.tts.eager=true loads text to speech before the window shows, as it used to be
+    // -Dillud.tts.warmup=false waits for the first text read instead of loading once the window shows
+    // -Dillud.startupTiming=true prints how long startup took
+    // -Dillud.tts.voice=name reads with another voice until one is picked from the Voice menu
+    private static final boolean TTS_EAGER = Boolean.getBoolean("illud.tts.eager");
+    private static final boolean TTS_WARMUP = Boolean.parseBoolean(System.getProperty("illud.tts.warmup", "true"));
+    private static final boolean STARTUP_TIMING = Boolean.getBoolean("illud.startupTiming");
+    private static final String DEFAULT_VOICE = System.getProperty("illud.tts.voice", "dfki-poppy-hsmm");
 
     // Constructor
     public Window(){
@@ -69,16 +93,87 @@ public class Window extends JFrame {
             } catch (Exception ex) { e.printStackTrace(); }
         }
 
-        // Initializing text to speech
-        tts = new TextToSpeech();                               // Creates new Text to Speech Object
-        tts.setVoice(Voice.poppy.voiceString);                  // Sets a voice to the text to speech object
+        // Initializing text to speech, which is loaded off the EDT once the window shows
+        speech = new SpeechLoader(DEFAULT_VOICE);               // Loads MaryTTS with a voice
         this.volume = 1.0f;                                     // Sets volume to a default number
+        if(TTS_EAGER){
+            speech.load().exceptionally(e -> null).join();      // Waits for the voices like before
+        }
+        this.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) { onFirstFrame(); }
+        });
         initUI();                                               // Initializes the User Interface
     }
 
     // Misc Functions
-    private void speak(String text) {tts.speak(text, volume, false, false);}    // Uses MaryTTS on the text
-    private void endSpeak() { tts.stopSpeaking(); }                                         // Ends MaryTTS playback
+    // Uses MaryTTS on the text, waiting for it to load first if it is not loaded yet
+    private void speak(String text) {
+        CompletableFuture<TextToSpeech> engine = speech.load();
+        if(engine.isDone()){
+            speakNow(engine, text);
+            return;
+        }
+        waitingText = text;                                     // Only the latest text is read
+        if(loadingDialog == null){
+            showLoadingDialog();
+            engine.whenComplete((tts, error) -> SwingUtilities.invokeLater(() -> {
+                loadingDialog.dispose();
+                loadingDialog = null;
+                String waiting = waitingText;
+                waitingText = null;
+                if(waiting != null){
+                    speakNow(engine, waiting);
+                }
+            }));
+        }
+    }
+
+    // Ends MaryTTS playback, and stops waiting to read text if it is still loading
+    private void endSpeak() {
+        waitingText = null;
+        if(speech.isLoaded()){
+            speech.load().join().stopSpeaking();
+        }
+    }
+
+    // Reads text with a loaded engine, or says why it could not be loaded
+    private void speakNow(CompletableFuture<TextToSpeech> engine, String text){
+        if(speech.isLoaded()){
+            engine.join().speakSentences(text, volume);        // Plays while the rest is synthesized
+        } else{
+            Throwable error = engine.handle((tts, e) -> e).join();
+            JOptionPane.showMessageDialog(this, "Text to speech could not be loaded: "
+                    + ((error.getCause() != null) ? error.getCause().getMessage() : error.getMessage()) + "\n");
+        }
+    }
+
+    // Shows that speech is loading until it is done, its cancel button drops the text waiting to be read
+    private void showLoadingDialog(){
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);                             // How long loading takes is not known
+        JOptionPane pane = new JOptionPane(new Object[]{"Loading the voice...", bar},
+                JOptionPane.INFORMATION_MESSAGE, JOptionPane.DEFAULT_OPTION, null, new Object[]{"Cancel"});
+        pane.addPropertyChangeListener(JOptionPane.VALUE_PROPERTY, e -> waitingText = null);
+        loadingDialog = pane.createDialog(this, "Read Highlighted Text");
+        loadingDialog.setModal(false);
+        loadingDialog.setVisible(true);
+    }
+
+    // Called once the window is first shown, starts loading speech and reports how long startup took
+    private void onFirstFrame(){
+        long firstFrame = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        if(STARTUP_TIMING){
+            System.err.println("Startup: first frame after " + firstFrame + " ms");
+        }
+        if(TTS_WARMUP || TTS_EAGER){
+            CompletableFuture<TextToSpeech> engine = speech.load();
+            if(STARTUP_TIMING){
+                engine.whenComplete((tts, error) -> System.err.println("Startup: speech "
+                        + ((error == null) ? "loaded in " + speech.getLoadMillis() + " ms" : "failed: " + error)));
+            }
+        }
+    }
 
     // Initializing all of the UI elements in Window
     private void initUI() {
@@ -110,19 +205,28 @@ public class Window extends JFrame {
         open_menu_item = new JMenuItem("Open");                     // "File > Open"
         JMenu actions = new JMenu("Actions");                         // "Actions"
         dict_menu_item = new JMenuItem("Dictionary");               // "Actions" > "Dictionary"
+        define_all_menu_item = new JMenuItem("Define All");         // "Actions" > "Define All"
         find_menu_item = new JMenuItem("Find");                     // "Actions" > "Find"
         tts_menu_item = new JMenuItem("Read Highlighted Text");     // "Actions" > "Read Highlighted Text"
+        tts_pause_menu_item = new JMenuItem("Pause/Resume Reading");// "Actions" > "Pause/Resume Reading"
+        tts_skip_menu_item = new JMenuItem("Skip Sentence");        // "Actions" > "Skip Sentence"
+        voice_menu = new JMenu("Voice");                              // "Voice"
         JMenu help = new JMenu("Help");                               // "Help"
         about_menu_item = new JMenuItem("About");                   // "Help" > About"
 
         // Creating the menu bar from the above elements
         jMenuBar.add(file);
         jMenuBar.add(actions);
+        jMenuBar.add(voice_menu);
         jMenuBar.add(help);
         file.add(open_menu_item);
         actions.add(dict_menu_item);
+        actions.add(define_all_menu_item);
         actions.add(find_menu_item);
         actions.add(tts_menu_item);
+        actions.add(tts_pause_menu_item);
+        actions.add(tts_skip_menu_item);
+        voice_menu.add(new JMenuItem("Loading voices...")).setEnabled(false);
         help.add(about_menu_item);
         this.setJMenuBar(jMenuBar);                                         // Sets the menu bar
         makeListeners();                                                    // Creates action listeners
@@ -133,6 +237,8 @@ public class Window extends JFrame {
         dictionary = new Dictionary();                                      // Creating Dictionary Dialog
         dictionary.setIconImage(illudIcon.getImage());                      // Sets Icon to Illud Icon
 
+        defineAll = new DefineAll();                                        // Creating glossary maker
+
         about = new About();                                                // Creating About Dialog
         about.setIconImage(illudIcon.getImage());                           // Sets Icon to Illud Icon
 
@@ -145,14 +251,11 @@ public class Window extends JFrame {
         JTextArea jTextArea = userInput.getMainTextArea();
         JList<String> list = userInput.getJList();
 
-        // Listener for Document
-        jTextArea.getDocument().addDocumentListener(new DocumentListener() {
-            @Override
-            public void insertUpdate(DocumentEvent e) { updateCounters(jTextArea, list); }
-            @Override
-            public void removeUpdate(DocumentEvent e) { updateCounters(jTextArea, list); }
-            @Override
-            public void changedUpdate(DocumentEvent e) { updateCounters(jTextArea, list); }
+        // Counts the document, and the one that replaces it when a file is opened
+        watchDocument(jTextArea, list);
+        jTextArea.addPropertyChangeListener("document", e -> {
+            watchDocument(jTextArea, list);
+            counterScheduler.update();                                      // Shows the counts of the new document
         });
 
         // Listener for File > Open
@@ -173,6 +276,9 @@ public class Window extends JFrame {
             }
         });
 
+        // Listener for Action > Define All, defines the highlighted text or else the whole document
+        define_all_menu_item.addActionListener(e -> defineAll.activate(this, jTextArea));
+
         // Listener for Help > About
         about_menu_item.addActionListener(e -> about.setVisible(true));
 
@@ -188,17 +294,107 @@ public class Window extends JFrame {
             }
         });
 
+        // Pausing and skipping only do something once text to speech is loaded
+        tts_pause_menu_item.addActionListener(e -> {
+            if(speech.isLoaded()){
+                speech.load().join().togglePause();
+            }
+        });
+        tts_skip_menu_item.addActionListener(e -> {
+            if(speech.isLoaded()){
+                speech.load().join().skipSentence();
+            }
+        });
+
+        // Opening the Voice menu loads speech if it is not loaded, the voices are listed once it is
+        voice_menu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                if(voicesListed || voiceMenuPending){
+                    return;
+                }
+                CompletableFuture<TextToSpeech> engine = speech.load();
+                if(engine.isDone()){
+                    fillVoiceMenu(engine);
+                } else{
+                    voiceMenuPending = true;                        // Fills the menu once, however often it opens
+                    engine.whenComplete((tts, error) -> SwingUtilities.invokeLater(() -> {
+                        voiceMenuPending = false;
+                        fillVoiceMenu(engine);
+                    }));
+                }
+            }
+            @Override
+            public void menuDeselected(MenuEvent e) { }
+            @Override
+            public void menuCanceled(MenuEvent e) { }
+        });
+
         // Assigning shortcut keys
         assignCmdListener(java.awt.event.KeyEvent.VK_D, dict_menu_item);   // Opens dict on Command + D
         assignCmdListener(java.awt.event.KeyEvent.VK_F, find_menu_item);   // Opens find on Command + F
         assignCmdListener(java.awt.event.KeyEvent.VK_I, about_menu_item);  // Opens find on Command + I
         assignCmdListener(java.awt.event.KeyEvent.VK_O, open_menu_item);   // Opens open on Command + O
         assignCmdListener(java.awt.event.KeyEvent.VK_T, tts_menu_item);    // Opens tts on Command + T
+        assignCmdListener(java.awt.event.KeyEvent.VK_P, tts_pause_menu_item);  // Pauses tts on Command + P
+        assignCmdListener(java.awt.event.KeyEvent.VK_K, tts_skip_menu_item);   // Skips a sentence on Command + K
     }
 
-    private void updateCounters(JTextArea jTextArea, JList<String> jList){
-        String currentText = jTextArea.getText();
-        jList.setListData(CounterUtil.getCounterData(currentText));
+    // Lists the voices that can be picked, with a check next to the one text is read with
+    // The first time, a few other voices start warming up, since the user is looking for one
+    private void fillVoiceMenu(CompletableFuture<TextToSpeech> engine){
+        boolean first = !voicesListed;
+        voicesListed = true;
+        voice_menu.removeAll();
+        if(!speech.isLoaded()){
+            voice_menu.add(new JMenuItem("Text to speech could not be loaded")).setEnabled(false);
+            return;
+        }
+        TextToSpeech tts = engine.join();
+        if(first){
+            speech.warmOtherVoices(tts);
+        }
+        List<String> voices = tts.getAvailableVoiceNames();
+        if(voices.isEmpty()){
+            voice_menu.add(new JMenuItem("No voices found")).setEnabled(false);
+        }
+        ButtonGroup group = new ButtonGroup();                  // Only one voice is checked
+        for(String name : voices){
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(name, name.equals(tts.getVoice()));
+            // Warm voices are used at once, others load in the background while reading goes on
+            item.addActionListener(e -> tts.selectVoice(name).whenComplete((v, error) -> {
+                if(error != null){
+                    SwingUtilities.invokeLater(() -> {
+                        JOptionPane.showMessageDialog(this, "The voice " + name + " could not be loaded: "
+                                + ((error.getCause() != null) ? error.getCause().getMessage() : error.getMessage()));
+                        fillVoiceMenu(engine);                  // Checks the voice still in use
+                    });
+                }
+            }));
+            group.add(item);
+            voice_menu.add(item);
+        }
+    }
+
+    // Counts small edits of the text area's document right away and recounts large ones off the EDT, publishing
+    // to the list
+    private void watchDocument(JTextArea jTextArea, JList<String> list){
+        if(counterScheduler != null){
+            counterScheduler.shutdown();                                    // Stops counting the old document
+        }
+        CounterScheduler scheduler = new CounterScheduler((AbstractDocument) jTextArea.getDocument(),
+                list::setListData, COUNTER_DEBOUNCE_MILLIS);
+        counterScheduler = scheduler;
+
+        // Listener for Document
+        jTextArea.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { scheduler.insertUpdate(e); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { scheduler.removeUpdate(e); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { }                 // Attributes do not change any count
+        });
     }
 
     // Adds listener that runs on command + key platform independently
@@ -0,0 +1,235 @@
+package Source.Logic;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+// Headless mode that runs the counters over files, directories and globs without starting the GUI
+// Only uses CounterUtil, so neither Swing nor MaryTTS is ever loaded
+public class BatchAnalyzer {
+    // Command line
+    public static final String FLAG = "--batch";
+    private static final String FORMAT_OPTION = "--format=";
+    private static final String THREADS_OPTION = "--threads=";
+    private static final String USAGE = "Usage: " + FLAG + " [" + FORMAT_OPTION + "json|csv] ["
+            + THREADS_OPTION + "n] <file|directory|glob>...";
+    private static final String CSV_HEADER = "file,bytes,characters,words,lines,paragraphs,sentences,error";
+    private static final String GLOB_CHARS = "*?[{";
+
+    private final boolean csv;                                      // Prints CSV instead of JSON lines
+    private final int threads;                                      // Files analyzed at the same time
+    private final PrintStream out;                                  // Where records go
+    private final PrintStream err;                                  // Where errors and stats go
+
+    public BatchAnalyzer(boolean csv, int threads, PrintStream out, PrintStream err){
+        this.csv = csv;
+        this.threads = threads;
+        this.out = out;
+        this.err = err;
+    }
+
+    // Entry point from Main, args start with FLAG, returns the exit status
+    public static int run(String[] args){
+        boolean csv = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> inputs = new ArrayList<>();
+        for(int i = 1; i < args.length; i++){
+            String arg = args[i];
+            if(arg.startsWith(FORMAT_OPTION)){
+                String format = arg.substring(FORMAT_OPTION.length());
+                if(!format.equals("json") && !format.equals("csv")){
+                    System.err.println(USAGE);
+                    return 2;
+                }
+                csv = format.equals("csv");
+            } else if(arg.startsWith(THREADS_OPTION)){
+                try{
+                    threads = Math.max(1, Integer.parseInt(arg.substring(THREADS_OPTION.length())));
+                } catch (NumberFormatException e){
+                    System.err.println(USAGE);
+                    return 2;
+                }
+            } else{
+                inputs.add(arg);
+            }
+        }
+        if(inputs.isEmpty()){
+            System.err.println(USAGE);
+            return 2;
+        }
+        return new BatchAnalyzer(csv, threads, System.out, System.err).analyze(inputs);
+    }
+
+    // Analyzes every file the inputs resolve to, printing one record per file as soon as it is done
+    public int analyze(List<String> inputs){
+        long startTime = System.nanoTime();
+        Set<Path> files = new LinkedHashSet<>();                    // Keeps order and drops duplicates
+        int status = 0;
+        for(String input : inputs){
+            try{
+                resolve(input, files);
+            } catch (IOException e){
+                err.println("Could not read " + input + ": " + e.getMessage());
+                status = 1;
+            }
+        }
+
+        if(csv){
+            out.println(CSV_HEADER);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);  // Bounded so memory stays bounded too
+        CompletionService<Record> completion = new ExecutorCompletionService<>(executor);
+        for(Path file : files){
+            completion.submit(() -> analyzeFile(file));
+        }
+
+        long totalBytes = 0;
+        try{
+            for(int i = 0; i < files.size(); i++){
+                Record record = completion.take().get();            // Whichever file finishes next
+                out.println(csv ? record.toCsv() : record.toJson());
+                totalBytes += record.bytes;
+                if(record.error != null){
+                    status = 1;
+                }
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            status = 1;
+        } catch (ExecutionException e){
+            e.printStackTrace();
+            status = 1;
+        } finally{
+            executor.shutdownNow();
+        }
+        out.flush();
+
+        // Throughput stats
+        double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-9);
+        double megabytes = totalBytes / (1024.0 * 1024.0);
+        err.printf("%d files, %.1f MB in %.3f s (%.1f files/s, %.1f MB/s)%n",
+                files.size(), megabytes, seconds, files.size() / seconds, megabytes / seconds);
+        return status;
+    }
+
+    // Adds the files that input stands for, a file, a directory (searched recursively) or a glob
+    static void resolve(String input, Set<Path> files) throws IOException{
+        int globStart = indexOfGlob(input);
+        if(globStart < 0){
+            Path path = Paths.get(input);
+            if(Files.isDirectory(path)){
+                addRegularFiles(path, null, files);
+            } else{
+                files.add(path);                                    // Missing files are reported by analyzeFile
+            }
+        } else{
+            // Walks from the deepest directory that has no glob characters in it
+            int baseEnd = Math.max(input.lastIndexOf('/', globStart), input.lastIndexOf('\\', globStart));
+            Path base = Paths.get(baseEnd < 0 ? "" : input.substring(0, baseEnd + 1));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+            addRegularFiles(base, matcher, files);
+        }
+    }
+
+    // Adds every regular file under dir that matcher accepts, or all of them if matcher is null
+    private static void addRegularFiles(Path dir, PathMatcher matcher, Set<Path> files) throws IOException{
+        try(Stream<Path> walk = Files.walk(dir)){
+            walk.filter(Files::isRegularFile)
+                    .filter(p -> matcher == null || matcher.matches(p))
+                    .sorted()
+                    .forEach(files::add);
+        }
+    }
+
+    // Index of the first glob character in input, or -1
+    private static int indexOfGlob(String input){
+        for(int i = 0; i < input.length(); i++){
+            if(GLOB_CHARS.indexOf(input.charAt(i)) >= 0){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Reads and counts a single file, runs on the executor
+    private static Record analyzeFile(Path file){
+        Record record = new Record(file.toString());
+        try{
+            record.bytes = Files.size(file);
+            // Decodes and removes CR like FileOpener does, so the counts match the ones shown in the GUI
+            String text = FileLoader.load(file, FileLoader.TEXT_CHARSET, null);
+            record.data = CounterUtil.count(text);
+        } catch (IOException | OutOfMemoryError e){
+            record.error = e.toString();
+        }
+        return record;
+    }
+
+    // Result for a single file
+    private static class Record {
+        private final String file;
+        private long bytes;
+        private CounterData data;
+        private String error;
+
+        Record(String file){
+            this.file = file;
+        }
+
+        String toJson(){
+            StringBuilder sb = new StringBuilder("{\"file\":");
+            JsonStrings.append(sb, file);
+            sb.append(",\"bytes\":").append(bytes);
+            if(data != null){
+                sb.append(",\"characters\":").append(data.characters);
+                sb.append(",\"words\":").append(data.words);
+                sb.append(",\"lines\":").append(data.lines);
+                sb.append(",\"paragraphs\":").append(data.paragraphs);
+                sb.append(",\"sentences\":").append(data.sentences);
+            }
+            if(error != null){
+                sb.append(",\"error\":");
+                JsonStrings.append(sb, error);
+            }
+            return sb.append('}').toString();
+        }
+
+        String toCsv(){
+            StringBuilder sb = new StringBuilder();
+            appendCsvField(sb, file);
+            sb.append(',').append(bytes);
+            if(data != null){
+                sb.append(',').append(data.characters);
+                sb.append(',').append(data.words);
+                sb.append(',').append(data.lines);
+                sb.append(',').append(data.paragraphs);
+                sb.append(',').append(data.sentences);
+                sb.append(',');
+            } else{
+                sb.append(",,,,,,");
+            }
+            if(error != null){
+                appendCsvField(sb, error);
+            }
+            return sb.toString();
+        }
+
+        private static void appendCsvField(StringBuilder sb, String s){
+            sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
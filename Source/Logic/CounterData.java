@@ -0,0 +1,72 @@
+package Source.Logic;
+
+import java.util.Vector;
+
+public class CounterData {
+    // Totals for each counted element
+    long characters;
+    long words;
+    long lines;
+    long paragraphs;
+    long sentences;
+
+    // Classes of the first and last characters counted, used to join counts of neighbouring chunks
+    int firstClass;
+    int lastClass;
+
+    // Getters
+    public long getCharacters() { return characters; }
+    public long getWords() { return words; }
+    public long getLines() { return lines; }
+    public long getParagraphs() { return paragraphs; }
+    public long getSentences() { return sentences; }
+
+    // Adds each total of other to this one
+    void add(CounterData other){
+        characters += other.characters;
+        words += other.words;
+        lines += other.lines;
+        paragraphs += other.paragraphs;
+        sentences += other.sentences;
+    }
+
+    // Adds the counts of the chunk right after this one
+    // A run that crosses the boundary between the chunks was counted as starting in both, so it is taken away once
+    void append(CounterData next){
+        if(next.characters == 0){
+            return;
+        }
+        if(characters == 0){
+            firstClass = next.firstClass;
+        }
+        int joined = (characters == 0) ? 0 : (lastClass & next.firstClass);  // Runs crossing the boundary
+        characters += next.characters;
+        words += next.words - (joined & CounterUtil.SPACE);
+        lines += next.lines;
+        paragraphs += next.paragraphs - ((joined & CounterUtil.BREAK) >> 1);
+        sentences += next.sentences - ((joined & CounterUtil.PUNCT) >> 2);
+        lastClass = next.lastClass;
+    }
+
+    // Sets every total back to zero
+    void clear(){
+        characters = 0;
+        words = 0;
+        lines = 0;
+        paragraphs = 0;
+        sentences = 0;
+        firstClass = 0;
+        lastClass = 0;
+    }
+
+    // Formats the totals the same way as CounterUtil.getCounterData
+    public Vector<String> toVector(){
+        Vector<String> output = new Vector<>();                 // Stores output
+        output.add(characters + " characters\n");
+        output.add(words + " words\n");
+        output.add(lines + " lines\n");
+        output.add(paragraphs + " paragraphs\n");
+        output.add(sentences + " sentences\n");
+        return output;
+    }
+}
@@ -0,0 +1,141 @@
+package Source.Logic;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Keeps the counters of a document up to date without blocking the Swing EDT
+// Small edits are counted right away by an IncrementalCounter, large ones (pastes, opened files) are recounted on a
+// background thread once the document has been quiet for the debounce time
+// Only the latest recount matters, so a new edit cancels any recount that is scheduled or running, and a result is
+// only published if the document has not changed since it was counted
+public class CounterScheduler {
+    private static final int EDIT_LIMIT = 1 << 16;                  // Longest edit counted on the EDT
+    private static final int CHUNK_SIZE = 1 << 20;                  // Characters counted per read lock
+
+    private final Document doc;                                     // Document being counted
+    private final IncrementalCounter counter;                       // Counts small edits
+    private final Consumer<Vector<String>> publisher;               // Shows counts, only called on the EDT
+    private final long debounceMillis;                              // Quiet time before a recount starts
+    private final ScheduledExecutorService executor;                // Runs recounts
+    private final AtomicLong version;                               // Increases on every edit of the document
+    private ScheduledFuture<?> scheduled;                           // Latest recount
+
+    public CounterScheduler(AbstractDocument doc, Consumer<Vector<String>> publisher, long debounceMillis){
+        this.doc = doc;
+        this.publisher = publisher;
+        this.debounceMillis = debounceMillis;
+        counter = new IncrementalCounter(EDIT_LIMIT);
+        version = new AtomicLong();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Illud counter");
+            thread.setDaemon(true);                                 // Does not keep the program open
+            return thread;
+        });
+        counter.install(doc);
+    }
+
+    // Called from the document listener after an insertion
+    public void insertUpdate(DocumentEvent e){
+        version.incrementAndGet();
+        counter.insertUpdate(e);
+        update();
+    }
+
+    // Called from the document listener after a removal
+    public void removeUpdate(DocumentEvent e){
+        version.incrementAndGet();
+        counter.removeUpdate(e);
+        update();
+    }
+
+    // Publishes counts that are current, or schedules a recount if they are not
+    public void update(){
+        if(counter.isStale()){
+            schedule();
+        } else{
+            publisher.accept(counter.getCounterData());
+        }
+    }
+
+    // Schedules a recount of the current version, replacing the one before it
+    private void schedule(){
+        long current = version.get();
+        if(scheduled != null){
+            scheduled.cancel(false);                                // A running recount stops on its own
+        }
+        scheduled = executor.schedule(new Recount(current), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the recount thread
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+
+    // Counts one version of the document on the executor thread, giving up as soon as the version moves on
+    private class Recount implements Runnable {
+        private final long expected;                                // Version being counted
+        private final CounterData data;                             // Totals so far
+        private final Segment segment;                              // Buffer for reading the document
+        private int offset;                                         // Characters counted so far
+        private int prevClass;                                      // Class of the last character counted
+        private boolean done;                                       // Reached the end of the document
+        private boolean cancelled;                                  // Document changed before the end was reached
+
+        Recount(long expected){
+            this.expected = expected;
+            data = new CounterData();
+            segment = new Segment();
+            segment.setPartialReturn(true);                         // Reads the document in the chunks it is stored in
+        }
+
+        @Override
+        public void run(){
+            while(!done && !cancelled){
+                doc.render(this::countChunk);                       // Only holds the read lock for one chunk
+            }
+            if(cancelled){
+                return;                                             // A newer recount is already scheduled
+            }
+            data.characters = offset;
+            SwingUtilities.invokeLater(() -> {
+                if(version.get() == expected){                      // Still the same document on the EDT
+                    counter.reset(data);
+                    publisher.accept(counter.getCounterData());
+                }
+            });
+        }
+
+        // Counts up to CHUNK_SIZE characters, called while holding the read lock
+        private void countChunk(){
+            if(version.get() != expected){                          // Edited since the last chunk
+                cancelled = true;
+                return;
+            }
+            int length = doc.getLength();
+            int end = Math.min(offset + CHUNK_SIZE, length);
+            try{
+                while(offset < end){
+                    doc.getText(offset, end - offset, segment);
+                    prevClass = CounterUtil.countRange(segment.array, segment.offset,
+                            segment.offset + segment.count, prevClass, data, 1);
+                    offset += segment.count;
+                }
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+                cancelled = true;
+            }
+            done = (offset >= length);
+        }
+    }
+}
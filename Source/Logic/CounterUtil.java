@@ -1,7 +1,8 @@
 package Source.Logic;
 
 import java.util.Vector;
-import java.util.regex.Matcher;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.regex.Pattern;
 
 public class CounterUtil{
@@ -10,28 +11,157 @@ public class CounterUtil{
     private static final Pattern LINE_PATTERN = Pattern.compile("\\n");
     private static final Pattern PARA_PATTERN = Pattern.compile("\\R+");
     private static final Pattern SENT_PATTERN = Pattern.compile("[!?.:]+");
-    private static final Matcher word_matcher = WORD_PATTERN.matcher("");
-    private static final Matcher line_matcher = LINE_PATTERN.matcher("");
-    private static final Matcher para_matcher = PARA_PATTERN.matcher("");
-    private static final Matcher sent_matcher = SENT_PATTERN.matcher("");
 
-    public static Vector<String> getCounterData(String input){
+    // Texts at least this long are counted in parallel, in chunks of CHUNK_SIZE characters
+    private static final int PARALLEL_THRESHOLD = 1 << 22;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // Character classes, each bit stands for one of the patterns above
+    static final int SPACE = 1;                             // \s, a run of these separates words
+    static final int BREAK = 2;                             // \R, a run of these separates paragraphs
+    static final int PUNCT = 4;                             // [!?.:], a run of these ends a sentence
+    static final int NEWLINE = 8;                           // \n, ends a line
+    private static final byte[] ASCII_CLASSES = new byte[128]; // Lookup table of classOf for ASCII characters
+
+    static {
+        for(char c = 0; c < ASCII_CLASSES.length; c++){
+            ASCII_CLASSES[c] = (byte) classOf(c);
+        }
+    }
+
+    public static Vector<String> getCounterData(CharSequence input){
+        return count(input).toVector();
+    }
+
+    // Counts every element without any regex, in parallel for long inputs
+    // Safe to call from any number of threads, as long as input does not change while it is counted
+    public static CounterData count(CharSequence input){
+        if(input.length() >= PARALLEL_THRESHOLD){
+            return ForkJoinPool.commonPool().invoke(new CountTask(input, 0, input.length()));
+        }
+        return countChunk(input, 0, input.length());
+    }
+
+    // Counts the characters between start and end in a single pass, as if nothing came before them
+    static CounterData countChunk(CharSequence input, int start, int end){
+        CounterData data = new CounterData();
+        if(start < end){
+            data.firstClass = classOf(input.charAt(start));
+            data.lastClass = countRange(input, start, end, 0, data);
+            data.characters = end - start;
+        }
+        return data;
+    }
+
+    // Splits the input in half until the pieces are chunk sized, then stitches the counts back together
+    private static class CountTask extends RecursiveTask<CounterData> {
+        private final CharSequence input;
+        private final int start;
+        private final int end;
+
+        CountTask(CharSequence input, int start, int end){
+            this.input = input;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected CounterData compute(){
+            if(end - start <= CHUNK_SIZE){
+                return countChunk(input, start, end);
+            }
+            int middle = (start + end) >>> 1;
+            CountTask left = new CountTask(input, start, middle);
+            left.fork();                                            // Counts the left half on another thread
+            CounterData right = new CountTask(input, middle, end).compute();
+            CounterData data = left.join();
+            data.append(right);
+            return data;
+        }
+    }
+
+    // Adds the elements that start between start and end of input to into, given the class of the character before
+    // start, and returns the class of the last character read
+    // A run of a class starts wherever that class is present and was absent in the previous character
+    static int countRange(CharSequence input, int start, int end, int prevClass, CounterData into){
+        long words = 0, lines = 0, paragraphs = 0, sentences = 0;   // Locals so the loop does not touch the heap
+        for(int i = start; i < end; i++){
+            char c = input.charAt(i);
+            int currClass = (c < ASCII_CLASSES.length) ? ASCII_CLASSES[c] : classOf(c);
+            int runStarts = currClass & ~prevClass;                 // Classes that begin a new run here
+            words += runStarts & SPACE;
+            paragraphs += (runStarts & BREAK) >> 1;
+            sentences += (runStarts & PUNCT) >> 2;
+            lines += (currClass & NEWLINE) >> 3;
+            prevClass = currClass;
+        }
+        into.words += words;
+        into.lines += lines;
+        into.paragraphs += paragraphs;
+        into.sentences += sentences;
+        return prevClass;
+    }
+
+    // Same as above for a char array, adding sign times each element so edits can also take counts away
+    static int countRange(char[] array, int start, int end, int prevClass, CounterData into, int sign){
+        for(int i = start; i < end; i++){
+            char c = array[i];
+            int currClass = (c < ASCII_CLASSES.length) ? ASCII_CLASSES[c] : classOf(c);
+            int runStarts = currClass & ~prevClass;             // Classes that begin a new run here
+            into.words += sign * (runStarts & SPACE);
+            into.paragraphs += sign * ((runStarts & BREAK) >> 1);
+            into.sentences += sign * ((runStarts & PUNCT) >> 2);
+            into.lines += sign * ((currClass & NEWLINE) >> 3);
+            prevClass = currClass;
+        }
+        return prevClass;
+    }
+
+    // Regex version of getCounterData, kept as the reference the scanner above has to agree with
+    public static Vector<String> getRegexCounterData(String input){
         Vector<String> output = new Vector<>();                 // Stores output
 
         // Adds each stat to the output
         output.add(input.length() + " characters\n");
 
         // Counts regex captures separated by whitespace and adds it to output
-        output.add(word_matcher.reset(input).results().count() + " words\n");
+        // Each call makes its own matchers so it can run on several threads at once
+        output.add(WORD_PATTERN.matcher(input).results().count() + " words\n");
 
         // Counts regex captures separated by newline characters and adds it to output
-        output.add(line_matcher.reset(input).results().count() + " lines\n");
+        output.add(LINE_PATTERN.matcher(input).results().count() + " lines\n");
 
         // Counts regex captures separated by line feed characters and adds it to output
-        output.add(para_matcher.reset(input).results().count() + " paragraphs\n");
+        output.add(PARA_PATTERN.matcher(input).results().count() + " paragraphs\n");
 
         // Counts regex captures separated by a period followed by a space and adds it to output
-        output.add(sent_matcher.reset(input).results().count() + " sentences\n");
+        output.add(SENT_PATTERN.matcher(input).results().count() + " sentences\n");
         return output; // Returns output
     }
+
+    // Returns the character classes of c, matching what the patterns above accept
+    static int classOf(char c){
+        switch(c){
+            case '\n':
+                return SPACE | BREAK | NEWLINE;
+            case '\r':
+            case '\u000B':
+            case '\f':
+                return SPACE | BREAK;
+            case ' ':
+            case '\t':
+                return SPACE;
+            case '\u0085':
+            case '\u2028':
+            case '\u2029':
+                return BREAK;
+            case '!':
+            case '?':
+            case '.':
+            case ':':
+                return PUNCT;
+            default:
+                return 0;
+        }
+    }
 }
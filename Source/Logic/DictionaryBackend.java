@@ -0,0 +1,17 @@
+package Source.Logic;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Somewhere words can be looked up, like a dictionary server or a word list on disk
+public interface DictionaryBackend {
+    // Entries for word, none if the dictionary does not have it, failing with an IOException if it cannot be reached
+    // Cancelling the future stops waiting for the lookup
+    CompletableFuture<List<DictionaryEntry>> lookup(String word);
+
+    // Entries for word if they are at hand without going to a server, otherwise null
+    List<DictionaryEntry> getIfPresent(String word);
+
+    // Name shown to the user
+    String getName();
+}
@@ -0,0 +1,294 @@
+package Source.Logic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+// Two level cache of dictionary lookups, parsed results in memory and the raw responses on disk
+// Memory keeps the most recently used results until the responses they came from add up to a size limit, the disk
+// keeps every response until it is older than the time to live, so lookups are remembered across restarts
+// The disk file is a log that is only ever appended to, a word looked up again adds a newer record, and the file is
+// rewritten with only the live records once they take up less than half of it
+// Safe to use from several threads, every method holds the lock of the cache
+public class DictionaryCache<V> {
+    private static final int MAGIC = 0x494C4443;                    // "ILDC" at the start of the file
+    private static final int FORMAT = 1;
+    private static final long COMPACT_SIZE = 1 << 16;               // Smallest file worth compacting
+
+    private final Path file;                                        // Disk log, or null to only cache in memory
+    private final long timeToLive;                                  // Milliseconds a response stays on disk
+    private final long memoryLimit;                                 // Most characters of responses kept in memory
+    private final Function<String, V> parser;                       // Parses a response, null if it cannot
+    private final LinkedHashMap<String, Cached<V>> memory;          // Parsed results, least recently used first
+    private long memorySize;                                        // Characters of the responses in memory
+    private final Map<String, Record> disk;                         // Live record of each word in the file
+    private long liveBytes;                                         // Bytes of live records in the file
+    private long fileSize;
+    private RandomAccessFile log;                                   // Open disk log, or null if it could not be opened
+
+    // Cache that keeps responses in file for timeToLive milliseconds, and parsed results of up to memoryLimit
+    // characters of responses in memory, a file that cannot be read or written only leaves the memory cache
+    public DictionaryCache(Path file, long timeToLive, long memoryLimit, Function<String, V> parser){
+        this.file = file;
+        this.timeToLive = timeToLive;
+        this.memoryLimit = memoryLimit;
+        this.parser = parser;
+        memory = new LinkedHashMap<>(64, 0.75f, true);
+        disk = new HashMap<>();
+        if(file != null){
+            try{
+                open();
+            } catch (IOException e){
+                e.printStackTrace();
+                close();
+            }
+        }
+    }
+
+    // Key a word is cached under
+    public static String keyOf(String word){
+        return word.strip().toLowerCase(Locale.ROOT);
+    }
+
+    // Parsed result for word, from memory or else from disk, or null if it is not cached
+    public synchronized V get(String word){
+        String key = keyOf(word);
+        Cached<V> cached = memory.get(key);
+        if(cached != null){
+            return cached.value;
+        }
+        Record record = disk.get(key);
+        if(record == null){
+            return null;
+        }
+        if(System.currentTimeMillis() - record.time > timeToLive){
+            forget(key, record);
+            return null;
+        }
+        String response;
+        try{
+            response = read(record);
+        } catch (IOException e){
+            e.printStackTrace();
+            forget(key, record);
+            return null;
+        }
+        V value = parser.apply(response);
+        if(value == null){                                          // Written by a version that parsed differently
+            forget(key, record);
+            return null;
+        }
+        remember(key, response.length(), value);
+        return value;
+    }
+
+    // Caches the response for word and the result parsed from it
+    public synchronized void put(String word, String response, V value){
+        String key = keyOf(word);
+        remember(key, response.length(), value);
+        if(log != null){
+            try{
+                append(key, response, System.currentTimeMillis());
+                if(fileSize > COMPACT_SIZE && liveBytes * 2 < fileSize){
+                    compact();
+                }
+            } catch (IOException e){
+                e.printStackTrace();
+                close();                                            // Goes on with the memory cache only
+            }
+        }
+    }
+
+    // Number of words cached on disk
+    public synchronized int size(){
+        return disk.size();
+    }
+
+    // Adds a parsed result to memory, dropping the least recently used ones over the limit
+    private void remember(String key, int size, V value){
+        Cached<V> old = memory.put(key, new Cached<>(value, size));
+        if(old != null){
+            memorySize -= old.size;
+        }
+        memorySize += size;
+        Iterator<Map.Entry<String, Cached<V>>> eldest = memory.entrySet().iterator();
+        while(memorySize > memoryLimit && eldest.hasNext()){
+            memorySize -= eldest.next().getValue().size;
+            eldest.remove();
+        }
+    }
+
+    // Drops a record that is out of date or cannot be read, it is left out of the file when it is compacted
+    private void forget(String key, Record record){
+        disk.remove(key);
+        liveBytes -= record.length;
+    }
+
+    // Reads the records in the file, starting a new file if there is none or it is not one of these
+    private void open() throws IOException{
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        long now = System.currentTimeMillis();
+        boolean valid = false;
+        if(Files.exists(file)){
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+                valid = (in.readInt() == MAGIC && in.readInt() == FORMAT);
+                long position = 8;
+                while(valid){
+                    long time;
+                    byte[] keyBytes;
+                    int length;
+                    try{
+                        time = in.readLong();
+                        keyBytes = new byte[in.readUnsignedShort()];
+                        in.readFully(keyBytes);
+                        length = in.readInt();
+                        in.skipNBytes(length);
+                    } catch (EOFException e){
+                        break;                                      // End of the file, or a record cut off in it
+                    }
+                    String key = new String(keyBytes, StandardCharsets.UTF_8);
+                    long recordLength = 8 + 2 + keyBytes.length + 4 + length;
+                    Record old = disk.remove(key);
+                    if(old != null){
+                        liveBytes -= old.length;
+                    }
+                    if(now - time <= timeToLive){
+                        disk.put(key, new Record(time, position, recordLength, length));
+                        liveBytes += recordLength;
+                    }
+                    position += recordLength;
+                }
+                fileSize = position;
+            } catch (EOFException e){
+                valid = false;                                      // Cut off while it was written
+            }
+        }
+        if(!valid){                                                 // Starts over with an empty file
+            disk.clear();
+            liveBytes = 0;
+            try(DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))){
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+            }
+            fileSize = 8;
+        }
+        log = new RandomAccessFile(file.toFile(), "rw");
+        log.setLength(fileSize);                                    // Drops a record that was cut off
+    }
+
+    // Response of a record
+    private String read(Record record) throws IOException{
+        if(log == null){
+            throw new IOException("Cache file is closed");
+        }
+        byte[] bytes = new byte[record.responseLength];
+        log.seek(record.position + record.length - record.responseLength);
+        log.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Adds a record to the end of the file
+    private void append(String key, String response, long time) throws IOException{
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if(keyBytes.length > 0xFFFF){
+            return;                                                 // Not a word, not worth keeping
+        }
+        long recordLength = 8 + 2 + keyBytes.length + 4 + bytes.length;
+        log.seek(fileSize);
+        log.writeLong(time);
+        log.writeShort(keyBytes.length);
+        log.write(keyBytes);
+        log.writeInt(bytes.length);
+        log.write(bytes);
+        Record old = disk.put(key, new Record(time, fileSize, recordLength, bytes.length));
+        if(old != null){
+            liveBytes -= old.length;
+        }
+        liveBytes += recordLength;
+        fileSize += recordLength;
+    }
+
+    // Rewrites the file with only the live records, replacing it only once the new one is complete
+    private void compact() throws IOException{
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Record> moved = new HashMap<>();
+        long position = 8;
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))){
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            byte[] buffer = new byte[0];
+            for(Map.Entry<String, Record> entry : disk.entrySet()){
+                Record record = entry.getValue();
+                if(buffer.length < record.length){
+                    buffer = new byte[(int) record.length];
+                }
+                log.seek(record.position);
+                log.readFully(buffer, 0, (int) record.length);
+                out.write(buffer, 0, (int) record.length);
+                moved.put(entry.getKey(), new Record(record.time, position, record.length, record.responseLength));
+                position += record.length;
+            }
+        }
+        log.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = new RandomAccessFile(file.toFile(), "rw");
+        disk.clear();
+        disk.putAll(moved);
+        fileSize = position;
+        liveBytes = position - 8;
+    }
+
+    // Stops using the disk file
+    private void close(){
+        if(log != null){
+            try{
+                log.close();
+            } catch (IOException e){
+                e.printStackTrace();
+            }
+        }
+        log = null;
+        disk.clear();
+    }
+
+    // Parsed result in memory and the size of the response it came from
+    private static class Cached<V> {
+        private final V value;
+        private final int size;
+
+        Cached(V value, int size){
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    // Where a response is in the file
+    private static class Record {
+        private final long time;                                    // When it was written
+        private final long position;                                // Offset of the record
+        private final long length;                                  // Bytes of the whole record
+        private final int responseLength;                           // Bytes of the response at its end
+
+        Record(long time, long position, long length, int responseLength){
+            this.time = time;
+            this.position = position;
+            this.length = length;
+            this.responseLength = responseLength;
+        }
+    }
+}
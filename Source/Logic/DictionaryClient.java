@@ -0,0 +1,107 @@
+package Source.Logic;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Looks words up on a dictionary server without blocking the caller, giving up on servers that are too slow
+// Lookups of the same word while one is still running share its request, each caller gets a future of its own that
+// it can cancel, and the request is only cancelled once every caller waiting on it has cancelled
+public class DictionaryClient {
+    private final HttpClient client;
+    private final String source;                                    // URL the word is appended to
+    private final Duration readTimeout;                             // Longest wait for a response
+    private final Map<String, Request> inFlight;                    // Running request of each word
+
+    public DictionaryClient(String source, Duration connectTimeout, Duration readTimeout){
+        this.source = source;
+        this.readTimeout = readTimeout;
+        client = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        inFlight = new HashMap<>();
+    }
+
+    // Response for word, or null if the server has no entry for it
+    // Fails with an HttpTimeoutException if the server is too slow, or an IOException for any other error
+    public synchronized CompletableFuture<String> fetch(String word){
+        String key = DictionaryCache.keyOf(word);
+        Request request = inFlight.get(key);
+        if(request == null || request.response.isDone()){
+            request = new Request(key);
+            inFlight.put(key, request);
+        }
+        request.waiters++;
+
+        Request shared = request;
+        CompletableFuture<String> result = new CompletableFuture<>();
+        shared.response.whenComplete((body, error) -> {
+            if(error != null){
+                result.completeExceptionally((error instanceof CompletionException) ? error.getCause() : error);
+            } else{
+                result.complete(body);
+            }
+        });
+        result.whenComplete((body, error) -> {
+            if(result.isCancelled()){
+                release(shared);
+            }
+        });
+        return result;
+    }
+
+    // A caller stopped waiting on request, which is cancelled if it was the last one
+    private synchronized void release(Request request){
+        if(--request.waiters == 0 && !request.response.isDone()){
+            request.exchange.cancel(true);
+            inFlight.remove(request.key, request);
+        }
+    }
+
+    // Request for one word and the callers waiting on it
+    private class Request {
+        private final String key;
+        private final CompletableFuture<HttpResponse<String>> exchange;
+        private final CompletableFuture<String> response;           // Body of the response, or null
+        private int waiters;
+
+        Request(String key){
+            this.key = key;
+            // Spaces are encoded as %20, since the word is part of the path
+            String path = URLEncoder.encode(key, StandardCharsets.UTF_8).replace("+", "%20");
+            HttpRequest request = HttpRequest.newBuilder(URI.create(source + path))
+                    .timeout(readTimeout)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            exchange = client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            response = exchange.thenApply(this::bodyOf);
+            response.whenComplete((body, error) -> {
+                synchronized(DictionaryClient.this){
+                    inFlight.remove(key, this);                     // Later lookups make a new request
+                }
+            });
+        }
+
+        // Body of a response, null for a word the server does not know
+        private String bodyOf(HttpResponse<String> response){
+            if(response.statusCode() == 404){
+                return null;
+            }
+            if(response.statusCode() != 200){
+                throw new CompletionException(new IOException("Server answered " + response.statusCode()));
+            }
+            return response.body();
+        }
+    }
+}
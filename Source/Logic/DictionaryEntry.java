@@ -0,0 +1,78 @@
+package Source.Logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// One entry of a dictionary, a word with how it is pronounced and its meanings
+// Backends all give entries like these, and the text shown for them is built from here, so it looks the same
+// whichever dictionary a word came from
+public class DictionaryEntry {
+    private final String word;
+    private final String phonetic;                                  // Can be null
+    private final List<Meaning> meanings;
+
+    public DictionaryEntry(String word, String phonetic, List<Meaning> meanings){
+        this.word = word;
+        this.phonetic = phonetic;
+        this.meanings = List.copyOf(meanings);
+    }
+
+    // Getters
+    public String getWord() { return word; }
+    public String getPhonetic() { return phonetic; }
+    public List<Meaning> getMeanings() { return meanings; }
+
+    // A part of speech and the definitions the word has as one
+    public static class Meaning {
+        private final String partOfSpeech;                          // Can be null
+        private final List<String> definitions;                     // A definition that was not given is null
+
+        public Meaning(String partOfSpeech, List<String> definitions){
+            this.partOfSpeech = partOfSpeech;
+            this.definitions = Collections.unmodifiableList(new ArrayList<>(definitions));
+        }
+
+        // Getters
+        public String getPartOfSpeech() { return partOfSpeech; }
+        public List<String> getDefinitions() { return definitions; }
+    }
+
+    // Text shown for entries, each part on its own line with meanings and definitions numbered and indented
+    public static String render(List<DictionaryEntry> entries){
+        StringBuilder sb = new StringBuilder();
+        for(DictionaryEntry entry : entries){
+            entry.appendTo(sb);
+        }
+        return sb.toString();
+    }
+
+    // Appends the text of this entry, numbering meanings and definitions from 1
+    public void appendTo(StringBuilder sb){
+        appendPart(sb, "Word", word);
+        appendPart(sb, "Pronunciation", phonetic);
+        int partOfSpeechCount = 1;
+        int definitionCount = 1;                                    // Counts on through every meaning
+        for(Meaning meaning : meanings){
+            appendItem(sb, 1, "Part of Speech", partOfSpeechCount++, meaning.partOfSpeech);
+            for(String definition : meaning.definitions){
+                appendItem(sb, 2, "Definition", definitionCount++, definition);
+            }
+        }
+    }
+
+    // Appends "name: value" if there is a value
+    private static void appendPart(StringBuilder sb, String name, String value){
+        if(value != null){
+            sb.append(name).append(": ").append(value).append('\n');
+        }
+    }
+
+    // Appends a numbered "name index : value" after tabs if there is a value
+    private static void appendItem(StringBuilder sb, int tabs, String name, int index, String value){
+        if(value != null){
+            sb.append("\t".repeat(tabs)).append(name).append(' ').append(index).append(" : ").append(value)
+                    .append('\n');
+        }
+    }
+}
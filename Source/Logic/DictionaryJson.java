@@ -0,0 +1,312 @@
+package Source.Logic;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads dictionary entries straight out of a response in the api.dictionaryapi.dev format
+// The response is read front to back once, only the strings kept in the entries are copied out of it, and everything
+// else, like examples, synonyms and audio links, is stepped over without building anything for it
+// A response is an array of entry objects, arrays inside it are read the same way and anything else is left out
+final class DictionaryJson {
+    // Keys to get each part of the dictionary entry
+    private static final String PHONETIC = "phonetic";
+    private static final String WORD = "word";
+    private static final String MEANINGS = "meanings";
+    private static final String SPEECH_PART = "partOfSpeech";
+    private static final String DEFINITIONS = "definitions";
+    private static final String DEFINITION = "definition";
+    private static final int MAX_DEPTH = 64;                        // Arrays of entries nested deeper are an error
+
+    private final String json;
+    private int position;                                           // Next character to read
+
+    private DictionaryJson(String json){
+        this.json = json;
+    }
+
+    // Entries in a response, throws ParseException if it is not JSON
+    static List<DictionaryEntry> parse(String response) throws ParseException{
+        DictionaryJson reader = new DictionaryJson(response);
+        List<DictionaryEntry> entries = new ArrayList<>();
+        reader.readEntries(entries, 0);
+        reader.skipSpace();
+        if(reader.position != response.length()){
+            throw reader.error("Unexpected text after the response");
+        }
+        return entries;
+    }
+
+    // Adds the entry of an object, or the entries in an array, skipping any other value
+    private void readEntries(List<DictionaryEntry> entries, int depth) throws ParseException{
+        char c = peek();
+        if(c == '{'){
+            entries.add(readEntry());
+        } else if(c == '['){
+            if(depth == MAX_DEPTH){
+                throw error("Entries nested too deeply");
+            }
+            position++;
+            if(!consume(']')){
+                do{
+                    readEntries(entries, depth + 1);
+                } while(consume(','));
+                expect(']');
+            }
+        } else{
+            skipValue();
+        }
+    }
+
+    // Entry object, parts that are missing or not strings are left out
+    private DictionaryEntry readEntry() throws ParseException{
+        String word = null;
+        String phonetic = null;
+        List<DictionaryEntry.Meaning> meanings = new ArrayList<>();
+        expect('{');
+        if(!consume('}')){
+            do{
+                String name = readName();
+                if(name.equals(WORD)){
+                    word = readStringOrNull();
+                } else if(name.equals(PHONETIC)){
+                    phonetic = readStringOrNull();
+                } else if(name.equals(MEANINGS) && peek() == '['){
+                    meanings.clear();                               // A repeated key replaces the first one
+                    readMeanings(meanings);
+                } else{
+                    skipValue();
+                }
+            } while(consume(','));
+            expect('}');
+        }
+        return new DictionaryEntry(word, phonetic, meanings);
+    }
+
+    // Array of meaning objects, anything else in it is skipped
+    private void readMeanings(List<DictionaryEntry.Meaning> meanings) throws ParseException{
+        expect('[');
+        if(!consume(']')){
+            do{
+                if(peek() != '{'){
+                    skipValue();
+                    continue;
+                }
+                position++;
+                String partOfSpeech = null;
+                List<String> definitions = new ArrayList<>();
+                if(!consume('}')){
+                    do{
+                        String name = readName();
+                        if(name.equals(SPEECH_PART)){
+                            partOfSpeech = readStringOrNull();
+                        } else if(name.equals(DEFINITIONS) && peek() == '['){
+                            definitions.clear();
+                            readDefinitions(definitions);
+                        } else{
+                            skipValue();
+                        }
+                    } while(consume(','));
+                    expect('}');
+                }
+                meanings.add(new DictionaryEntry.Meaning(partOfSpeech, definitions));
+            } while(consume(','));
+            expect(']');
+        }
+    }
+
+    // Array of definition objects, a definition object without a string definition adds null
+    private void readDefinitions(List<String> definitions) throws ParseException{
+        expect('[');
+        if(!consume(']')){
+            do{
+                if(peek() != '{'){
+                    skipValue();
+                    continue;
+                }
+                position++;
+                String definition = null;
+                if(!consume('}')){
+                    do{
+                        if(readName().equals(DEFINITION)){
+                            definition = readStringOrNull();
+                        } else{
+                            skipValue();
+                        }
+                    } while(consume(','));
+                    expect('}');
+                }
+                definitions.add(definition);
+            } while(consume(','));
+            expect(']');
+        }
+    }
+
+    // Name of a field and the colon after it
+    private String readName() throws ParseException{
+        if(peek() != '"'){
+            throw error("Expected a field name");
+        }
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    // String value, or null after skipping a value of any other type
+    private String readStringOrNull() throws ParseException{
+        if(peek() == '"'){
+            return readString();
+        }
+        skipValue();
+        return null;
+    }
+
+    // String starting at the current quote, copied straight out of the response unless it has escapes
+    private String readString() throws ParseException{
+        int start = ++position;
+        int end = json.indexOf('"', start);
+        if(end < 0){
+            throw error("Unterminated string");
+        }
+        int escape = json.indexOf('\\', start);
+        if(escape < 0 || escape > end){
+            position = end + 1;
+            return json.substring(start, end);
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(json, start, escape);
+        position = escape;
+        while(true){
+            if(position >= json.length()){
+                throw error("Unterminated string");
+            }
+            char c = json.charAt(position++);
+            if(c == '"'){
+                return sb.toString();
+            }
+            if(c != '\\'){
+                sb.append(c);
+                continue;
+            }
+            if(position >= json.length()){
+                throw error("Unterminated string");
+            }
+            char escaped = json.charAt(position++);
+            switch(escaped){
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if(position + 4 > json.length()){
+                        throw error("Unterminated escape");
+                    }
+                    try{
+                        sb.append((char) Integer.parseInt(json, position, position + 4, 16));
+                    } catch (NumberFormatException e){
+                        throw error("Bad unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default: sb.append(escaped);                        // \" \\ and \/
+            }
+        }
+    }
+
+    // Steps over a value of any type, objects and arrays are only checked for matching brackets
+    private void skipValue() throws ParseException{
+        char c = peek();
+        if(c != '{' && c != '['){
+            skipScalar();
+            return;
+        }
+        int depth = 0;
+        do{
+            if(position >= json.length()){
+                throw error("Unterminated value");
+            }
+            c = json.charAt(position);
+            if(c == '"'){
+                skipString();
+                continue;
+            }
+            if(c == '{' || c == '['){
+                depth++;
+            } else if(c == '}' || c == ']'){
+                depth--;
+            }
+            position++;
+        } while(depth > 0);
+    }
+
+    // Steps over a string, number, true, false or null
+    private void skipScalar() throws ParseException{
+        if(peek() == '"'){
+            skipString();
+            return;
+        }
+        int start = position;
+        while(position < json.length()){
+            char c = json.charAt(position);
+            if(!Character.isLetterOrDigit(c) && c != '-' && c != '+' && c != '.'){
+                break;
+            }
+            position++;
+        }
+        if(position == start){
+            throw error("Expected a value");
+        }
+    }
+
+    // Steps over a string without copying it
+    private void skipString() throws ParseException{
+        position++;
+        while(position < json.length()){
+            char c = json.charAt(position++);
+            if(c == '"'){
+                return;
+            }
+            if(c == '\\'){
+                position++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    // Next character that is not white space, without reading it, or 0 at the end
+    private char peek(){
+        skipSpace();
+        return (position < json.length()) ? json.charAt(position) : 0;
+    }
+
+    // Reads c if it is next
+    private boolean consume(char c){
+        if(peek() == c){
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    // Reads c, which must be next
+    private void expect(char c) throws ParseException{
+        if(!consume(c)){
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipSpace(){
+        while(position < json.length()){
+            char c = json.charAt(position);
+            if(c != ' ' && c != '\t' && c != '\n' && c != '\r'){
+                return;
+            }
+            position++;
+        }
+    }
+
+    private ParseException error(String message){
+        return new ParseException(message + " at " + position, position);
+    }
+}
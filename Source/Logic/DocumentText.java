@@ -0,0 +1,93 @@
+package Source.Logic;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+// CharSequence view of a document that reads it a chunk at a time instead of copying it into a string
+// Lets regex matching and counting run over documents of any size, the document must not change while it is used
+// Can be read from several threads at once, like a string, each chunk read replaces the last one as a whole
+public class DocumentText implements CharSequence {
+    private static final int CHUNK_SIZE = 1 << 14;                  // Characters read at a time
+    private static final int BEHIND = CHUNK_SIZE / 4;               // Characters before an index read with it
+
+    private final Document doc;
+    private final int start;                                        // Offset of this view in the document
+    private final int length;
+    private volatile Chunk chunk;                                   // Chunk read last
+
+    // View of the whole document
+    public DocumentText(Document doc){
+        this(doc, 0, doc.getLength());
+    }
+
+    // View of length characters starting at start
+    public DocumentText(Document doc, int start, int length){
+        this.doc = doc;
+        this.start = start;
+        this.length = length;
+        chunk = new Chunk(0, new Segment());
+    }
+
+    @Override
+    public int length(){
+        return length;
+    }
+
+    @Override
+    public char charAt(int index){
+        Chunk c = chunk;
+        if(index < c.start || index >= c.start + c.segment.count){
+            if(index < 0 || index >= length){
+                throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            }
+            // Also reads a little before index, since matching often looks back at the previous characters
+            c = load(Math.max(index - BEHIND, 0));
+            if(index >= c.start + c.segment.count){                 // The chunk stopped before index
+                c = load(index);
+            }
+            chunk = c;
+        }
+        return c.segment.array[c.segment.offset + index - c.start];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end){
+        if(start < 0 || end > length || start > end){
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new DocumentText(doc, this.start + start, end - start);
+    }
+
+    @Override
+    public String toString(){
+        try{
+            return doc.getText(start, length);
+        } catch (BadLocationException e){
+            throw new IndexOutOfBoundsException(e.getMessage());
+        }
+    }
+
+    // Reads the chunk starting at index
+    private Chunk load(int index){
+        Segment segment = new Segment();
+        segment.setPartialReturn(true);                             // Points into the document where it can
+        try{
+            doc.getText(start + index, Math.min(CHUNK_SIZE, length - index), segment);
+        } catch (BadLocationException e){
+            throw new IndexOutOfBoundsException(e.getMessage());
+        }
+        return new Chunk(index, segment);
+    }
+
+    // Characters read from the document and the index they start at
+    private static class Chunk {
+        private final int start;
+        private final Segment segment;
+
+        Chunk(int start, Segment segment){
+            this.start = start;
+            this.segment = segment;
+        }
+    }
+}
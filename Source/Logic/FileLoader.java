@@ -0,0 +1,127 @@
+package Source.Logic;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads text files through a memory mapped FileChannel, decoding them in chunks and removing CR in the same pass
+// Has no Swing code so it can be used from the headless batch mode as well as from FileOpener
+public class FileLoader {
+    private static final long WINDOW_SIZE = 1 << 24;                // Bytes mapped at a time
+    private static final int CHUNK_SIZE = 1 << 16;                  // Characters decoded at a time
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;    // Longest char array the JVM can make
+
+    // Charset text files are read in, shared by the GUI and the headless modes so they count the same text
+    // UTF-8 unless -Dillud.charset names another, never the platform default, so counts do not depend on the locale
+    public static final Charset TEXT_CHARSET = Charset.forName(System.getProperty("illud.charset", "UTF-8"));
+
+    // Gets told how far loading has come, after each mapped window
+    public interface ProgressListener {
+        void progress(long bytesRead, long totalBytes);
+    }
+
+    // Loads the whole file as a string without CR characters
+    // Stops with an InterruptedIOException if the calling thread is interrupted
+    public static String load(Path path, Charset charset, ProgressListener listener) throws IOException{
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size > MAX_LENGTH){
+                throw new IOException("File is too large to open: " + size + " bytes");
+            }
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)     // Same as reading through a Reader
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            // A byte never decodes to more than one char in the charsets text files use, so the file size is an
+            // upper bound on the length, grown below only if a charset proves otherwise
+            char[] text = new char[(int) size];
+            int length = 0;
+            CharBuffer chunk = CharBuffer.allocate(CHUNK_SIZE);     // Decoded characters before CR is removed
+
+            long position = 0;
+            while(position < size){
+                long windowSize = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                boolean lastWindow = (position + windowSize == size);
+                CoderResult result;
+                do{
+                    if(Thread.currentThread().isInterrupted()){
+                        throw new InterruptedIOException("Loading cancelled: " + path);
+                    }
+                    result = decoder.decode(window, chunk, lastWindow);
+                    if(result.isError()){
+                        result.throwException();
+                    }
+                    chunk.flip();
+                    if(length + chunk.remaining() > text.length){
+                        text = grow(text, length + chunk.remaining());
+                    }
+                    length = appendWithoutCR(chunk, text, length);
+                    chunk.clear();
+                } while(result.isOverflow());
+                // Bytes of a character cut off by the end of the window are decoded with the next one
+                position += window.position();
+                if(lastWindow){
+                    break;
+                }
+                if(listener != null){
+                    listener.progress(position, size);
+                }
+            }
+            // Whatever the decoder still holds, for stateful charsets
+            flush(decoder, chunk);
+            if(length + chunk.remaining() > text.length){
+                text = grow(text, length + chunk.remaining());
+            }
+            length = appendWithoutCR(chunk, text, length);
+            if(listener != null){
+                listener.progress(size, size);
+            }
+            return new String(text, 0, length);
+        }
+    }
+
+    // Copies the characters of chunk into text at length, leaving out CR, and returns the new length
+    private static int appendWithoutCR(CharBuffer chunk, char[] text, int length){
+        char[] array = chunk.array();
+        int end = chunk.arrayOffset() + chunk.limit();
+        for(int i = chunk.arrayOffset() + chunk.position(); i < end; i++){
+            char c = array[i];
+            if(c != '\r'){
+                text[length++] = c;
+            }
+        }
+        return length;
+    }
+
+    // Decodes the final characters a stateful decoder may still hold into chunk, leaving it ready to read
+    private static void flush(CharsetDecoder decoder, CharBuffer chunk) throws CharacterCodingException{
+        decoder.decode(ByteBuffer.allocate(0), chunk, true);
+        CoderResult result = decoder.flush(chunk);
+        if(result.isError()){
+            result.throwException();
+        }
+        chunk.flip();
+    }
+
+    // Returns a copy of text that can hold at least minLength characters
+    private static char[] grow(char[] text, int minLength) throws IOException{
+        if(minLength > MAX_LENGTH){
+            throw new IOException("File is too large to open");
+        }
+        int newLength = (int) Math.min(Math.max((long) text.length * 3 / 2, minLength), MAX_LENGTH);
+        char[] grown = new char[newLength];
+        System.arraycopy(text, 0, grown, 0, text.length);
+        return grown;
+    }
+}
@@ -2,22 +2,33 @@ package Source.Logic;
 
 import Source.GUI.UserInput;
 import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
 import javax.swing.filechooser.FileFilter;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
 import java.io.File;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class FileOpener {
+    // Files at least this large are mapped instead of read onto the heap
+    private static final long LARGE_FILE_BYTES = 1L << 26;
+
     // Class Variables
-    private Scanner scanner;                                                // Scanner for getting input
     private final JFileChooser fc;                                          // File Chooser
+    private SwingWorker<Document, Void> loader;                             // Loads the chosen file off the EDT
     private final Vector<String> acceptedFileTypes;                         // String vector of accepted file types
 
     // Default Constructor
     public FileOpener(){
         // Creating File Chooser
         fc = new JFileChooser();                                            // New file chooser object
-        scanner = null;                                                     // Initializing scanner object
 
         // Setting acceptable file types
         fc.setAcceptAllFileFilterUsed(false);                               // Does not accept all file types
@@ -59,19 +70,53 @@ public class FileOpener {
         int returnVal = fc.showOpenDialog(component);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             File file = fc.getSelectedFile();
-
-            // Reading file into a string
-            try {
-                scanner = new Scanner(file);
-            } catch (Exception e) { e.printStackTrace(); }
-            if(scanner.hasNext()){
-                String fileText = scanner
-                        .useDelimiter("\\A")                                // Delimiter - End of Line
-                        .next()                                             // Next input
-                        .replace("\r", "");                 // Removes extra CR
-                scanner.close();
-                userInput.setFile(fileText);                                // Puts string from file into main text area
+            if(loader != null){
+                loader.cancel(true);                                        // Only the latest file is opened
             }
+
+            // Shows progress after a short delay, with a cancel button
+            ProgressMonitor monitor = new ProgressMonitor(component, "Opening " + file.getName(), null, 0, 100);
+
+            // Reading file into a new document on a background thread
+            loader = new SwingWorker<>() {
+                @Override
+                protected Document doInBackground() throws Exception {
+                    return load(file.toPath(), (read, total) -> setProgress((int) (100 * read / Math.max(total, 1))));
+                }
+
+                @Override
+                protected void done() {
+                    monitor.close();
+                    if(isCancelled()){
+                        return;
+                    }
+                    try {
+                        userInput.setDocument(get());                       // Puts file into main text area
+                    } catch (CancellationException | InterruptedException e) {
+                        // Cancelled, nothing to show
+                    } catch (ExecutionException e) {
+                        JOptionPane.showMessageDialog(component,
+                                "Could not open " + file.getName() + ": " + e.getCause().getMessage() + "\n");
+                    }
+                }
+            };
+            WorkerMonitor.watch(loader, monitor);
+            loader.execute();
+        }
+    }
+
+    // Reads a file into a document that is not shown yet, so it can be filled off the EDT
+    // Large files are only mapped and indexed, their text is read from the mapping as it is shown
+    private static Document load(Path path, FileLoader.ProgressListener listener) throws IOException{
+        if(path.toFile().length() >= LARGE_FILE_BYTES){
+            return new LargeDocument(MappedText.open(path, FileLoader.TEXT_CHARSET, listener));
+        }
+        Document doc = new PlainDocument();
+        try{
+            doc.insertString(0, FileLoader.load(path, FileLoader.TEXT_CHARSET, listener), null);
+        } catch (BadLocationException e){
+            throw new IllegalStateException(e);                             // Offset 0 is always valid
         }
+        return doc;
     }
 }
@@ -0,0 +1,182 @@
+package Source.Logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Looks up every distinct word of a text to make a glossary of it
+// Words already at hand in the backend, like those cached from earlier lookups, are taken from it without waiting,
+// the rest are looked up at most maxLookups at a time and no faster than lookupsPerSecond so a server is not flooded
+public class Glossary {
+    private static final Pattern WORD_PATTERN = Pattern.compile("\\p{L}+(?:['\u2019-]\\p{L}+)*");
+    private static final int MIN_WORD_LENGTH = 2;                   // Single letters are not worth defining
+
+    // Told of each word once its lookup is done, from whichever thread finished it
+    public interface ProgressListener {
+        void defined(String word, int done, int total);
+    }
+
+    private final DictionaryBackend backend;
+    private final int maxLookups;                                   // Lookups running at the same time
+    private final double lookupsPerSecond;                          // 0 for no limit
+
+    public Glossary(DictionaryBackend backend, int maxLookups, double lookupsPerSecond){
+        this.backend = backend;
+        this.maxLookups = Math.max(1, maxLookups);
+        this.lookupsPerSecond = lookupsPerSecond;
+    }
+
+    // Words of text in the order they first appear, each spelled as it first appears and only once whatever its case
+    public static List<String> distinctWords(CharSequence text){
+        Map<String, String> words = new LinkedHashMap<>();
+        Matcher matcher = WORD_PATTERN.matcher(text);
+        while(matcher.find()){
+            if(matcher.end() - matcher.start() >= MIN_WORD_LENGTH){
+                String word = matcher.group();
+                words.putIfAbsent(DictionaryCache.keyOf(word), word);
+            }
+        }
+        return new ArrayList<>(words.values());
+    }
+
+    // Looks up every word and waits for them all
+    // Interrupting the calling thread cancels the lookups still running and throws InterruptedException
+    public Report define(List<String> words, ProgressListener listener) throws InterruptedException{
+        Map<String, List<DictionaryEntry>> found = new ConcurrentHashMap<>();
+        Map<String, String> failed = new ConcurrentHashMap<>();
+        AtomicInteger done = new AtomicInteger();
+        Semaphore permits = new Semaphore(maxLookups);
+        TokenBucket bucket = new TokenBucket(lookupsPerSecond, maxLookups);
+        List<CompletableFuture<List<DictionaryEntry>>> running = new ArrayList<>();
+        try{
+            for(String word : words){
+                List<DictionaryEntry> atHand = backend.getIfPresent(word);
+                if(atHand != null){
+                    found.put(word, atHand);
+                    listener.defined(word, done.incrementAndGet(), words.size());
+                    continue;
+                }
+                permits.acquire();
+                bucket.take();
+                CompletableFuture<List<DictionaryEntry>> lookup = backend.lookup(word);
+                running.add(lookup);
+                lookup.whenComplete((entries, error) -> {
+                    if(error == null){
+                        found.put(word, entries);
+                    } else{
+                        Throwable cause = (error instanceof CompletionException) ? error.getCause() : error;
+                        failed.put(word, (cause.getMessage() != null) ? cause.getMessage() : cause.toString());
+                    }
+                    // Told before the permit goes back, so every word is told of before define returns
+                    try{
+                        listener.defined(word, done.incrementAndGet(), words.size());
+                    } finally{
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(maxLookups);                            // Every lookup has given its permit back
+        } catch (InterruptedException e){
+            for(CompletableFuture<List<DictionaryEntry>> lookup : running){
+                lookup.cancel(false);
+            }
+            throw e;
+        }
+        return new Report(words, found, failed);
+    }
+
+    // Definitions found for each word, the words that have none, and those that could not be looked up
+    public static class Report {
+        private final Map<String, List<DictionaryEntry>> defined;   // In alphabetical order
+        private final List<String> missing;
+        private final Map<String, String> failed;                   // Why each word could not be looked up
+
+        Report(List<String> words, Map<String, List<DictionaryEntry>> found, Map<String, String> failed){
+            List<String> sorted = new ArrayList<>(words);
+            sorted.sort(String.CASE_INSENSITIVE_ORDER);
+            defined = new LinkedHashMap<>();
+            missing = new ArrayList<>();
+            this.failed = new LinkedHashMap<>();
+            for(String word : sorted){
+                List<DictionaryEntry> entries = found.get(word);
+                if(entries != null && !entries.isEmpty()){
+                    defined.put(word, entries);
+                } else if(failed.containsKey(word)){
+                    this.failed.put(word, failed.get(word));
+                } else{
+                    missing.add(word);
+                }
+            }
+        }
+
+        // Getters
+        public Map<String, List<DictionaryEntry>> getDefined() { return Collections.unmodifiableMap(defined); }
+        public List<String> getMissing() { return Collections.unmodifiableList(missing); }
+        public Map<String, String> getFailed() { return Collections.unmodifiableMap(failed); }
+
+        // Text of the glossary, the words and their definitions in alphabetical order then the words left out
+        public String getText(){
+            StringBuilder sb = new StringBuilder();
+            sb.append("Glossary of ").append(defined.size()).append(" words\n");
+            for(List<DictionaryEntry> entries : defined.values()){
+                sb.append('\n');
+                for(DictionaryEntry entry : entries){
+                    entry.appendTo(sb);
+                }
+            }
+            if(!missing.isEmpty()){
+                sb.append("\nNo definitions found for ").append(missing.size()).append(" words:\n");
+                sb.append(String.join(", ", missing)).append('\n');
+            }
+            if(!failed.isEmpty()){
+                sb.append("\nCould not look up ").append(failed.size()).append(" words:\n");
+                for(Map.Entry<String, String> failure : failed.entrySet()){
+                    sb.append('\t').append(failure.getKey()).append(" : ").append(failure.getValue()).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    // Rate limit that lets up to capacity lookups start at once, then one every 1 / perSecond seconds
+    private static class TokenBucket {
+        private final double perNano;                               // Tokens added each nanosecond
+        private final double capacity;
+        private double tokens;
+        private long last;                                          // When tokens were last added
+
+        TokenBucket(double perSecond, int capacity){
+            perNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            tokens = capacity;
+            last = System.nanoTime();
+        }
+
+        // Waits for a token and takes it
+        void take() throws InterruptedException{
+            if(perNano <= 0){
+                return;                                             // No limit
+            }
+            while(true){
+                long now = System.nanoTime();
+                tokens = Math.min(capacity, tokens + (now - last) * perNano);
+                last = now;
+                if(tokens >= 1){
+                    tokens--;
+                    return;
+                }
+                TimeUnit.NANOSECONDS.sleep((long) Math.ceil((1 - tokens) / perNano));
+            }
+        }
+    }
+}
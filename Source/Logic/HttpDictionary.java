@@ -0,0 +1,67 @@
+package Source.Logic;
+
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Dictionary on a server with the api.dictionaryapi.dev response format, looked up through a DictionaryClient
+// Entries are cached in a DictionaryCache, parsed in memory and as the responses on disk
+// Responses are read with DictionaryJson, which goes straight to entries without a JSON tree in between
+public class HttpDictionary implements DictionaryBackend {
+    private final DictionaryClient client;
+    private final DictionaryCache<List<DictionaryEntry>> cache;
+
+    // Looks words up at source, which the word is appended to, caching responses in cacheFile
+    public HttpDictionary(String source, Duration connectTimeout, Duration readTimeout,
+                          Path cacheFile, long cacheTimeToLive, long cacheMemoryLimit){
+        client = new DictionaryClient(source, connectTimeout, readTimeout);
+        cache = new DictionaryCache<>(cacheFile, cacheTimeToLive, cacheMemoryLimit, response -> {
+            try{
+                return DictionaryJson.parse(response);
+            } catch (ParseException e){
+                return null;                                        // Not a response that can be used
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<DictionaryEntry>> lookup(String word){
+        List<DictionaryEntry> cached = cache.get(word);
+        if(cached != null){
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String> fetch = client.fetch(word);
+        CompletableFuture<List<DictionaryEntry>> result = fetch.thenApply(response -> {
+            if(response == null){
+                return List.of();                                   // Not a word the server knows
+            }
+            try{
+                List<DictionaryEntry> entries = DictionaryJson.parse(response);
+                cache.put(word, response, entries);
+                return entries;
+            } catch (ParseException e){
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((entries, error) -> {
+            if(result.isCancelled()){
+                fetch.cancel(false);                                // Lets the client drop the request
+            }
+        });
+        return result;
+    }
+
+    // Words looked up before are at hand in the cache
+    @Override
+    public List<DictionaryEntry> getIfPresent(String word){
+        return cache.get(word);
+    }
+
+    @Override
+    public String getName(){
+        return "Online dictionary";
+    }
+}
@@ -0,0 +1,166 @@
+package Source.Logic;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.DocumentFilter;
+import javax.swing.text.Segment;
+import java.util.Vector;
+
+// Keeps the counter totals of a document up to date by only looking at the text around each edit
+// Every element is counted at the character that starts it, which only depends on that character and the one
+// before it, so an edit can only change the counts at the edited characters and the character right after them
+// Edits longer than the edit limit are not counted, they mark the totals stale until the next reset instead
+public class IncrementalCounter {
+    private final CounterData totals;                       // Totals for the whole document
+    private final CounterData pending;                      // Change from a removal that has not been applied yet
+    private final Segment segment;                          // Reused buffer for reading text around edits
+    private final int editLimit;                            // Longest edit that is counted right away
+    private boolean stale;                                  // Totals are out of date until the next reset
+
+    // Default Constructor
+    public IncrementalCounter(){
+        this(Integer.MAX_VALUE);
+    }
+
+    // Constructor for a counter that leaves edits longer than editLimit to a full recount
+    public IncrementalCounter(int editLimit){
+        totals = new CounterData();
+        pending = new CounterData();
+        segment = new Segment();
+        this.editLimit = editLimit;
+        stale = false;
+    }
+
+    // Counts the whole document once and starts watching it for removals
+    // A document longer than the edit limit is left stale instead, for a full recount somewhere else
+    // Insertions and removals still have to be passed in from a DocumentListener
+    public void install(AbstractDocument doc){
+        doc.setDocumentFilter(new RemovalFilter());
+        if(doc.getLength() > editLimit){
+            totals.clear();
+            pending.clear();
+            stale = true;
+        } else{
+            reset(doc);
+        }
+    }
+
+    // Recounts the whole document from scratch
+    public void reset(Document doc){
+        totals.clear();
+        pending.clear();
+        stale = false;
+        doc.render(() -> {                                  // Holds the read lock while counting
+            try{
+                int prevClass = 0;
+                int offset = 0;
+                int length = doc.getLength();
+                segment.setPartialReturn(true);             // Reads the document in the chunks it is stored in
+                while(offset < length){
+                    doc.getText(offset, length - offset, segment);
+                    prevClass = CounterUtil.countRange(segment.array, segment.offset,
+                            segment.offset + segment.count, prevClass, totals, 1);
+                    offset += segment.count;
+                }
+                totals.characters = length;
+            } catch (BadLocationException e) { e.printStackTrace(); }
+            finally { segment.setPartialReturn(false); }
+        });
+    }
+
+    // Replaces the totals with ones counted somewhere else, such as a background recount
+    public void reset(CounterData data){
+        totals.clear();
+        totals.add(data);
+        pending.clear();
+        stale = false;
+    }
+
+    // Applies an insertion, called after the text was inserted
+    public void insertUpdate(DocumentEvent e){
+        Document doc = e.getDocument();
+        int offset = e.getOffset();
+        int length = e.getLength();
+        if(stale || length > editLimit){                    // Too long to count here
+            stale = true;
+            return;
+        }
+        try{
+            // Counts the inserted characters and the character after them, which now follows new text
+            int docLength = doc.getLength();
+            int from = Math.max(offset - 1, 0);
+            int to = Math.min(offset + length + 1, docLength);
+            doc.getText(from, to - from, segment);
+            int prevClass = (offset > 0) ? CounterUtil.classOf(segment.array[segment.offset]) : 0;
+            int start = segment.offset + offset - from;
+            CounterUtil.countRange(segment.array, start, segment.offset + to - from, prevClass, totals, 1);
+
+            // Takes away what the character after the insertion counted for when it followed the old text
+            if(offset + length < docLength){
+                int after = segment.offset + offset + length - from;
+                CounterUtil.countRange(segment.array, after, after + 1, prevClass, totals, -1);
+            }
+            totals.characters += length;
+        } catch (BadLocationException ex) { ex.printStackTrace(); }
+    }
+
+    // Applies a removal, called after the text was removed
+    public void removeUpdate(DocumentEvent e){
+        if(!stale){
+            totals.add(pending);
+        }
+        pending.clear();
+    }
+
+    // Works out what a removal will change while the removed text can still be read
+    private void beforeRemove(Document doc, int offset, int length) throws BadLocationException{
+        if(length <= 0 || stale){
+            return;
+        }
+        if(length > editLimit){                             // Too long to count here
+            stale = true;
+            pending.clear();
+            return;
+        }
+        // Takes away the removed characters and the character after them
+        int docLength = doc.getLength();
+        int from = Math.max(offset - 1, 0);
+        int to = Math.min(offset + length + 1, docLength);
+        doc.getText(from, to - from, segment);
+        int prevClass = (offset > 0) ? CounterUtil.classOf(segment.array[segment.offset]) : 0;
+        int start = segment.offset + offset - from;
+        pending.clear();
+        CounterUtil.countRange(segment.array, start, segment.offset + to - from, prevClass, pending, -1);
+
+        // Adds back the character after the removal, which will follow the text before it
+        if(offset + length < docLength){
+            int after = segment.offset + offset + length - from;
+            CounterUtil.countRange(segment.array, after, after + 1, prevClass, pending, 1);
+        }
+        pending.characters -= length;
+    }
+
+    // Getters
+    public CounterData getTotals() { return totals; }
+    public boolean isStale() { return stale; }
+    public Vector<String> getCounterData() { return totals.toVector(); }
+
+    // Document filter that lets the counter read text right before it is removed
+    private class RemovalFilter extends DocumentFilter {
+        @Override
+        public void remove(FilterBypass fb, int offset, int length) throws BadLocationException {
+            beforeRemove(fb.getDocument(), offset, length);
+            super.remove(fb, offset, length);
+        }
+
+        @Override
+        public void replace(FilterBypass fb, int offset, int length, String text, AttributeSet attrs)
+                throws BadLocationException {
+            beforeRemove(fb.getDocument(), offset, length);
+            super.replace(fb, offset, length, text, attrs);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Source.Logic;
+
+import java.util.concurrent.CancellationException;
+
+// CharSequence that stops whoever is reading it once a deadline has passed, or the thread that made it or the one
+// reading it is interrupted
+// A Matcher only reads its input through charAt, so a regular expression that backtracks without end is stopped with
+// an exception instead of hanging the thread that runs it, even when it runs on a pool thread for another one
+public class InterruptibleText implements CharSequence {
+    private static final int CHECK_INTERVAL = 1 << 12;              // Characters read between checks
+
+    private final CharSequence text;
+    private final long deadline;                                    // System.nanoTime() to stop at
+    private final Thread owner;                                     // Thread the text is read for
+    private int reads;                                              // Characters read since the last check
+
+    // Stops reading text after timeLimitMillis, or once the current thread is interrupted
+    public InterruptibleText(CharSequence text, long timeLimitMillis){
+        this(text, System.nanoTime() + timeLimitMillis * 1_000_000L, Thread.currentThread());
+    }
+
+    private InterruptibleText(CharSequence text, long deadline, Thread owner){
+        this.text = text;
+        this.deadline = deadline;
+        this.owner = owner;
+    }
+
+    @Override
+    public int length(){
+        return text.length();
+    }
+
+    // The check count is not shared safely between threads, several readers only make the checks less even
+    @Override
+    public char charAt(int index){
+        if(++reads >= CHECK_INTERVAL){
+            reads = 0;
+            check();
+        }
+        return text.charAt(index);
+    }
+
+    // Part of the text with the same deadline
+    @Override
+    public CharSequence subSequence(int start, int end){
+        return new InterruptibleText(text.subSequence(start, end), deadline, owner);
+    }
+
+    @Override
+    public String toString(){
+        return text.toString();
+    }
+
+    // Throws if reading should stop
+    public void check(){
+        if(owner.isInterrupted() || Thread.currentThread().isInterrupted()){
+            throw new CancellationException("Search was cancelled");
+        }
+        if(System.nanoTime() - deadline > 0){
+            throw new TimeLimitException();
+        }
+    }
+
+    // Thrown when the text is read after the deadline
+    public static class TimeLimitException extends RuntimeException {
+        public TimeLimitException(){
+            super("Search took too long");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package Source.Logic;
+
+// Writes strings as JSON string literals, for the records the headless modes print
+final class JsonStrings {
+    private JsonStrings(){ }
+
+    // Appends s in quotes, escaping quotes, backslashes and control characters
+    static void append(StringBuilder sb, String s){
+        sb.append('"');
+        for(int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            if(c == '"' || c == '\\'){
+                sb.append('\\').append(c);
+            } else if(c < 0x20){
+                sb.append(String.format("\\u%04x", (int) c));       // Control characters
+            } else{
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,263 @@
+package Source.Logic;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Segment;
+import javax.swing.text.SimpleAttributeSet;
+import java.util.Arrays;
+
+// Plain text document for files too large to hold on the heap, made of a PieceTableContent over a MappedText
+// Lines are not kept as elements and positions like PlainDocument does, only their start offsets are stored, in a
+// gap buffer so that edits close to each other only move a few of them
+// Line elements are made when asked for and describe the line at that moment, they do not follow later edits
+// Edits cannot be undone
+public class LargeDocument extends AbstractDocument {
+    private final LineRoot root;                                    // Element for the whole document
+    private int[] lineStarts;                                       // Gap buffer of line starts
+    private int gapStart;                                           // First index in the gap
+    private int gapEnd;                                             // First index after the gap
+    private int indexedLength;                                      // Document length the line starts are for
+    private final Segment segment;                                  // Reused buffer for finding inserted newlines
+
+    // Opens text that was already mapped, positions made while the content was empty move to its end
+    public LargeDocument(MappedText text){
+        super(new PieceTableContent(text));
+        ((PieceTableContent) getContent()).load();
+        root = new LineRoot();
+        segment = new Segment();
+        putProperty(PlainDocument.tabSizeAttribute, 8);             // Same tab size as PlainDocument
+
+        // Entries after the gap are stored as their distance from the end of the document, so an edit before them
+        // does not change them
+        int[] starts = text.getLineStarts();
+        lineStarts = Arrays.copyOf(starts, starts.length + 16);
+        gapStart = starts.length;
+        gapEnd = lineStarts.length;
+        indexedLength = getLength();
+    }
+
+    @Override
+    public Element getDefaultRootElement(){
+        return root;
+    }
+
+    @Override
+    public Element getParagraphElement(int pos){
+        return root.getElement(root.getElementIndex(pos));
+    }
+
+    // Updates the line starts after an insertion
+    // The line the text went into is found from the line starts as they were before it, a line starting right at
+    // the insertion keeps its start
+    @Override
+    protected void insertUpdate(DefaultDocumentEvent chng, AttributeSet attr){
+        int offset = chng.getOffset();
+        int length = chng.getLength();
+        int line = root.getElementIndex(offset);                    // Line the text went into
+        Element before = new LineElement(line, lineStart(line), lineEnd(line));
+        moveGap(line + 1);                                          // Later starts move with the text on their own
+        indexedLength = getLength();
+
+        // Every newline in the inserted text starts a new line after the one it went into
+        int added = 0;
+        try{
+            segment.setPartialReturn(true);
+            int position = offset;
+            while(position < offset + length){
+                getContent().getChars(position, offset + length - position, segment);
+                for(int i = 0; i < segment.count; i++){
+                    if(segment.array[segment.offset + i] == '\n'){
+                        if(gapStart == gapEnd){
+                            growGap();
+                        }
+                        lineStarts[gapStart++] = position + i + 1;
+                        added++;
+                    }
+                }
+                position += segment.count;
+            }
+        } catch (BadLocationException e){
+            throw new IllegalStateException(e);
+        } finally{
+            segment.setPartialReturn(false);
+        }
+
+        if(added > 0){                                              // Lets the views know lines were added
+            Element[] addedLines = new Element[added + 1];
+            for(int i = 0; i <= added; i++){
+                addedLines[i] = root.getElement(line + i);
+            }
+            chng.addEdit(new LineEdit(root, line, new Element[]{before}, addedLines));
+        }
+        super.insertUpdate(chng, attr);
+    }
+
+    // Updates the line starts before a removal, while the removed text still counts towards the document length
+    @Override
+    protected void removeUpdate(DefaultDocumentEvent chng){
+        int offset = chng.getOffset();
+        int end = offset + chng.getLength();
+        int first = root.getElementIndex(offset);                   // Line the removal starts in
+        int last = root.getElementIndex(end);                       // Line the removal ends in
+        moveGap(last + 1);                                          // Later starts move with the text on their own
+        if(first != last){
+            // Lines after the first one that start inside the removed text are joined to it
+            Element[] removedLines = new Element[last - first + 1];
+            for(int i = first; i <= last; i++){
+                removedLines[i - first] = root.getElement(i);
+            }
+            int joinedEnd = removedLines[removedLines.length - 1].getEndOffset() - chng.getLength();
+            gapStart -= last - first;
+            Element joined = new LineElement(first, lineStart(first), joinedEnd);
+            chng.addEdit(new LineEdit(root, first, removedLines, new Element[]{joined}));
+        }
+        super.removeUpdate(chng);
+    }
+
+    // Catches the line starts up with the length after a removal
+    @Override
+    protected void postRemoveUpdate(DefaultDocumentEvent chng){
+        indexedLength = getLength();
+        super.postRemoveUpdate(chng);
+    }
+
+    // Number of lines
+    private int lineCount(){
+        return lineStarts.length - (gapEnd - gapStart);
+    }
+
+    // Offset where a line starts
+    private int lineStart(int line){
+        if(line < gapStart){
+            return lineStarts[line];
+        }
+        return indexedLength - lineStarts[line + gapEnd - gapStart];
+    }
+
+    // Offset right after a line, which includes its newline
+    private int lineEnd(int line){
+        return (line + 1 < lineCount()) ? lineStart(line + 1) : indexedLength + 1;
+    }
+
+    // Moves the gap so that it starts at the given line, switching how the moved starts are stored
+    private void moveGap(int line){
+        int length = indexedLength;
+        while(gapStart > line){                                     // Moves starts before the gap to after it
+            int start = lineStarts[--gapStart];
+            lineStarts[--gapEnd] = length - start;
+        }
+        while(gapStart < line){                                     // Moves starts after the gap to before it
+            int distance = lineStarts[gapEnd++];
+            lineStarts[gapStart++] = length - distance;
+        }
+    }
+
+    // Makes the gap larger, keeping the starts after it at the end of the array
+    private void growGap(){
+        int after = lineStarts.length - gapEnd;
+        int[] grown = new int[lineStarts.length + Math.max(16, lineStarts.length / 2)];
+        System.arraycopy(lineStarts, 0, grown, 0, gapStart);
+        System.arraycopy(lineStarts, gapEnd, grown, grown.length - after, after);
+        gapEnd = grown.length - after;
+        lineStarts = grown;
+    }
+
+    // Element for the whole document, its children are the lines
+    private class LineRoot implements Element {
+        @Override
+        public Document getDocument() { return LargeDocument.this; }
+        @Override
+        public Element getParentElement() { return null; }
+        @Override
+        public String getName() { return ParagraphElementName; }
+        @Override
+        public AttributeSet getAttributes() { return SimpleAttributeSet.EMPTY; }
+        @Override
+        public int getStartOffset() { return 0; }
+        @Override
+        public int getEndOffset() { return getLength() + 1; }
+        @Override
+        public int getElementCount() { return lineCount(); }
+        @Override
+        public boolean isLeaf() { return false; }
+
+        @Override
+        public Element getElement(int index){
+            if(index < 0 || index >= lineCount()){
+                return null;
+            }
+            return new LineElement(index, lineStart(index), lineEnd(index));
+        }
+
+        // Line holding offset, found with a binary search over the line starts
+        @Override
+        public int getElementIndex(int offset){
+            int low = 0;
+            int high = lineCount() - 1;
+            while(low < high){
+                int mid = (low + high + 1) >>> 1;
+                if(lineStart(mid) <= offset){
+                    low = mid;
+                } else{
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    // A single line, fixed to the offsets it had when it was made
+    private class LineElement implements Element {
+        private final int line;
+        private final int start;
+        private final int end;
+
+        LineElement(int line, int start, int end){
+            this.line = line;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Document getDocument() { return LargeDocument.this; }
+        @Override
+        public Element getParentElement() { return root; }
+        @Override
+        public String getName() { return ContentElementName; }
+        @Override
+        public AttributeSet getAttributes() { return SimpleAttributeSet.EMPTY; }
+        @Override
+        public int getStartOffset() { return start; }
+        @Override
+        public int getEndOffset() { return end; }
+        @Override
+        public int getElementIndex(int offset) { return -1; }
+        @Override
+        public int getElementCount() { return 0; }
+        @Override
+        public Element getElement(int index) { return null; }
+        @Override
+        public boolean isLeaf() { return true; }
+
+        @Override
+        public String toString(){
+            return "Line " + line + " [" + start + "," + end + "]";
+        }
+    }
+
+    // Change to the lines reported to views, it cannot be undone since the lines are not elements of their own
+    private static class LineEdit extends ElementEdit {
+        LineEdit(Element root, int index, Element[] removed, Element[] added){
+            super(root, index, removed, added);
+        }
+
+        @Override
+        public boolean canUndo() { return false; }
+        @Override
+        public boolean canRedo() { return false; }
+    }
+}
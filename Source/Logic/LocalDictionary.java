@@ -0,0 +1,214 @@
+package Source.Logic;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Dictionary read from a word list on disk, for when no dictionary server can be reached
+// The word list is a tab separated file with a line per definition, "word, part of speech, definition" and then how
+// the word is pronounced if it is known, and it is imported once into an index file next to it
+// The index is a table of record offsets sorted by word followed by the records, it is mapped into memory instead of
+// read, so it opens at once whatever its size and only the records looked up are ever read onto the heap
+public class LocalDictionary implements DictionaryBackend {
+    private static final int MAGIC = 0x494C4449;                    // "ILDI" at the start of the index
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 12;                      // Magic, format and number of words
+    private static final String INDEX_EXTENSION = ".idx";
+
+    private final MappedByteBuffer index;                           // Only read with absolute gets, by any thread
+    private final int count;                                        // Number of words
+
+    private LocalDictionary(MappedByteBuffer index) throws IOException{
+        this.index = index;
+        if(index.capacity() < HEADER_SIZE || index.getInt(0) != MAGIC || index.getInt(4) != FORMAT){
+            throw new IOException("Not a dictionary index");
+        }
+        count = index.getInt(8);
+    }
+
+    // Opens the index of a word list, importing the word list first if its index is missing or older than it
+    public static LocalDictionary open(Path wordList) throws IOException{
+        Path indexFile = wordList.resolveSibling(wordList.getFileName() + INDEX_EXTENSION);
+        if(!Files.exists(indexFile)
+                || Files.getLastModifiedTime(indexFile).compareTo(Files.getLastModifiedTime(wordList)) < 0){
+            importWordList(wordList, indexFile);
+        }
+        try(FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)){
+            if(channel.size() > Integer.MAX_VALUE){
+                throw new IOException("Dictionary index is too large");
+            }
+            return new LocalDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Builds the index of a word list, replacing indexFile only once it is complete
+    // Lines that are empty or start with # are skipped, a line with two columns is a word and a definition
+    public static void importWordList(Path wordList, Path indexFile) throws IOException{
+        Map<String, Builder> words = new HashMap<>();
+        try(BufferedReader reader = Files.newBufferedReader(wordList, StandardCharsets.UTF_8)){
+            String line;
+            while((line = reader.readLine()) != null){
+                if(line.isBlank() || line.startsWith("#")){
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                if(columns.length < 2 || columns[0].isBlank()){
+                    continue;
+                }
+                String partOfSpeech = (columns.length > 2) ? columns[1].strip() : "";
+                String definition = (columns.length > 2) ? columns[2].strip() : columns[1].strip();
+                Builder builder = words.computeIfAbsent(DictionaryCache.keyOf(columns[0]),
+                        key -> new Builder(columns[0].strip()));
+                if(columns.length > 3 && !columns[3].isBlank()){
+                    builder.phonetic = columns[3].strip();
+                }
+                builder.meanings.computeIfAbsent(partOfSpeech, part -> new ArrayList<>()).add(definition);
+            }
+        }
+
+        // Sorted by the bytes of their keys, which is the order lookups compare them in
+        byte[][] keys = new byte[words.size()][];
+        int k = 0;
+        for(String key : words.keySet()){
+            keys[k++] = key.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(keys, Arrays::compareUnsigned);
+        byte[][] records = new byte[keys.length][];
+        long size = HEADER_SIZE + 4L * (keys.length + 1);
+        for(int i = 0; i < keys.length; i++){
+            byte[] payload = words.get(new String(keys[i], StandardCharsets.UTF_8)).encode();
+            records[i] = new byte[keys[i].length + 1 + payload.length];
+            System.arraycopy(keys[i], 0, records[i], 0, keys[i].length);
+            System.arraycopy(payload, 0, records[i], keys[i].length + 1, payload.length);
+            size += records[i].length;
+        }
+        if(size > Integer.MAX_VALUE){
+            throw new IOException("Word list is too large");
+        }
+
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))){
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(records.length);
+            int offset = HEADER_SIZE + 4 * (records.length + 1);
+            for(byte[] record : records){
+                out.writeInt(offset);
+                offset += record.length;
+            }
+            out.writeInt(offset);                                   // End of the last record
+            for(byte[] record : records){
+                out.write(record);
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Looked up at once, the future is always complete
+    @Override
+    public CompletableFuture<List<DictionaryEntry>> lookup(String word){
+        byte[] key = DictionaryCache.keyOf(word).getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while(low <= high){
+            int mid = (low + high) >>> 1;
+            int compared = compareKey(mid, key);
+            if(compared < 0){
+                low = mid + 1;
+            } else if(compared > 0){
+                high = mid - 1;
+            } else{
+                return CompletableFuture.completedFuture(List.of(decode(mid, key.length)));
+            }
+        }
+        return CompletableFuture.completedFuture(List.of());
+    }
+
+    // Every word is at hand
+    @Override
+    public List<DictionaryEntry> getIfPresent(String word){
+        return lookup(word).join();
+    }
+
+    @Override
+    public String getName(){
+        return "Local dictionary";
+    }
+
+    // Number of words in the dictionary
+    public int size(){
+        return count;
+    }
+
+    // Offset of record i
+    private int offsetOf(int i){
+        return index.getInt(HEADER_SIZE + 4 * i);
+    }
+
+    // Compares the key of record i with key, as unsigned bytes
+    private int compareKey(int i, byte[] key){
+        int position = offsetOf(i);
+        for(int j = 0; ; j++){
+            int stored = index.get(position + j) & 0xFF;            // The key ends at a 0 byte
+            int wanted = (j < key.length) ? key[j] & 0xFF : 0;
+            if(stored != wanted || stored == 0){
+                return (stored == wanted && j == key.length) ? 0 : Integer.compare(stored, wanted);
+            }
+        }
+    }
+
+    // Entry in record i, after its key
+    private DictionaryEntry decode(int i, int keyLength){
+        int start = offsetOf(i) + keyLength + 1;
+        byte[] bytes = new byte[offsetOf(i + 1) - start];
+        index.get(start, bytes);
+        String[] lines = new String(bytes, StandardCharsets.UTF_8).split("\n");
+        String[] header = lines[0].split("\t", -1);
+        List<DictionaryEntry.Meaning> meanings = new ArrayList<>();
+        for(int l = 1; l < lines.length; l++){
+            String[] columns = lines[l].split("\t", -1);
+            List<String> definitions = Arrays.asList(columns).subList(1, columns.length);
+            meanings.add(new DictionaryEntry.Meaning(columns[0].isEmpty() ? null : columns[0], definitions));
+        }
+        return new DictionaryEntry(header[0], header[1].isEmpty() ? null : header[1], meanings);
+    }
+
+    // Entry being read from the word list
+    private static class Builder {
+        private final String word;
+        private String phonetic = "";
+        private final Map<String, List<String>> meanings = new LinkedHashMap<>();  // Definitions by part of speech
+
+        Builder(String word){
+            this.word = word;
+        }
+
+        // Record after the key, "word tab phonetic" then a line per part of speech with its definitions
+        byte[] encode(){
+            StringBuilder sb = new StringBuilder();
+            sb.append(word).append('\t').append(phonetic);
+            for(Map.Entry<String, List<String>> meaning : meanings.entrySet()){
+                sb.append('\n').append(meaning.getKey());
+                for(String definition : meaning.getValue()){
+                    sb.append('\t').append(definition);
+                }
+            }
+            return sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package Source.Logic;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Read only text of a memory mapped file, without CR characters, that is decoded a block at a time when read
+// Opening makes one pass over the file to find where each block and each line starts, after that only an
+// index of block and line offsets and a few recently read blocks are kept on the heap
+public class MappedText {
+    private static final int BLOCK_SIZE = 1 << 13;                  // Characters decoded per block, before CR removal
+    private static final long WINDOW_SIZE = 1L << 28;               // Bytes per mapping
+    private static final int OVERLAP = 4 * BLOCK_SIZE + 16;         // Bytes a block can reach past its window
+    private static final int CACHED_BLOCKS = 128;                   // Decoded blocks kept around
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 2;    // Documents are indexed with ints
+
+    private final MappedByteBuffer[] windows;                       // Mappings of the file, each OVERLAP longer
+    private final Charset charset;
+    private final long[] blockBytes;                                // Byte offset of each block, then the file size
+    private final int[] blockChars;                                 // Char offset of each block, then the length
+    private final int blockCount;
+    private final int[] lineStarts;                                 // Char offset where each line starts
+    private final int lineCount;
+    private final Map<Integer, char[]> cache;                       // Recently decoded blocks, least recent first
+
+    private MappedText(MappedByteBuffer[] windows, Charset charset, long[] blockBytes, int[] blockChars,
+                       int blockCount, int[] lineStarts, int lineCount){
+        this.windows = windows;
+        this.charset = charset;
+        this.blockBytes = blockBytes;
+        this.blockChars = blockChars;
+        this.blockCount = blockCount;
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        cache = new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, char[]> eldest){
+                return size() > CACHED_BLOCKS;
+            }
+        };
+    }
+
+    // Maps and indexes a file, stops with an InterruptedIOException if the calling thread is interrupted
+    public static MappedText open(Path path, Charset charset, FileLoader.ProgressListener listener)
+            throws IOException{
+        MappedByteBuffer[] windows;
+        long size;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            size = channel.size();
+            windows = new MappedByteBuffer[(int) Math.max(1, (size + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+            for(int w = 0; w < windows.length; w++){
+                long start = w * WINDOW_SIZE;
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(WINDOW_SIZE + OVERLAP, size - start));
+            }
+        }                                                           // Mappings stay valid once the channel is closed
+
+        // Decodes the whole file once, a block at a time, noting where blocks and lines start
+        long[] blockBytes = new long[1024];
+        int[] blockChars = new int[1024];
+        int[] lineStarts = new int[1024];
+        int blockCount = 0;
+        int lineCount = 1;                                          // The first line starts at 0
+        int length = 0;
+        CharsetDecoder decoder = newDecoder(charset);
+        CharBuffer block = CharBuffer.allocate(BLOCK_SIZE);
+        long position = 0;
+        while(position < size){
+            if(Thread.currentThread().isInterrupted()){
+                throw new InterruptedIOException("Opening cancelled: " + path);
+            }
+            int w = (int) (position / WINDOW_SIZE);
+            ByteBuffer bytes = windows[w].duplicate();
+            bytes.position((int) (position - w * WINDOW_SIZE));
+            boolean endOfInput = (w * WINDOW_SIZE + bytes.limit() == size);
+            long windowEnd = Math.min((w + 1) * WINDOW_SIZE, size);
+            while(position < windowEnd){                            // Blocks starting in this window
+                if(blockCount + 1 >= blockBytes.length){
+                    blockBytes = Arrays.copyOf(blockBytes, blockBytes.length * 2);
+                    blockChars = Arrays.copyOf(blockChars, blockChars.length * 2);
+                }
+                blockBytes[blockCount] = position;
+                blockChars[blockCount] = length;
+                blockCount++;
+
+                // Blocks are decoded on their own when read, so the decoder starts fresh for each one
+                decoder.reset();
+                block.clear();
+                CoderResult result = decoder.decode(bytes, block, endOfInput);
+                if(result.isError()){
+                    result.throwException();
+                }
+                if(result.isUnderflow() && endOfInput){
+                    decoder.flush(block);
+                }
+                position = w * WINDOW_SIZE + bytes.position();
+                block.flip();
+                for(int i = 0; i < block.limit(); i++){
+                    char c = block.get(i);
+                    if(c == '\r'){
+                        continue;
+                    }
+                    if(length == MAX_LENGTH){
+                        throw new IOException("File is too large to open: " + size + " bytes");
+                    }
+                    length++;
+                    if(c == '\n'){
+                        if(lineCount == lineStarts.length){
+                            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                        }
+                        lineStarts[lineCount++] = length;           // Next line starts after the newline
+                    }
+                }
+                if(result.isUnderflow()){
+                    position = size;                                // Nothing left that can be decoded
+                    break;
+                }
+            }
+            if(listener != null){
+                listener.progress(position, size);
+            }
+        }
+        blockBytes[blockCount] = size;
+        blockChars[blockCount] = length;
+        return new MappedText(windows, charset, blockBytes, blockChars, blockCount, lineStarts, lineCount);
+    }
+
+    // Number of characters, without CR
+    public int length(){
+        return blockChars[blockCount];
+    }
+
+    // Copies the characters from start to end into dst at dstOffset
+    public void getChars(int start, int end, char[] dst, int dstOffset){
+        while(start < end){
+            int b = blockOf(start);
+            char[] chars = getBlock(b);
+            int from = start - blockChars[b];
+            int count = Math.min(end - start, chars.length - from);
+            System.arraycopy(chars, from, dst, dstOffset, count);
+            start += count;
+            dstOffset += count;
+        }
+    }
+
+    // Index of the block holding the character at offset
+    public int blockOf(int offset){
+        int b = Arrays.binarySearch(blockChars, 0, blockCount + 1, offset);
+        if(b < 0){
+            return -b - 2;                                          // Block starting before offset
+        }
+        while(b + 1 < blockCount && blockChars[b + 1] == offset){  // Skips blocks that were all CR
+            b++;
+        }
+        return b;
+    }
+
+    // Char offset where a block starts
+    public int blockStart(int b){
+        return blockChars[b];
+    }
+
+    // Decoded characters of a block, the array must not be changed
+    public synchronized char[] getBlock(int b){
+        char[] chars = cache.get(b);
+        if(chars == null){
+            chars = decodeBlock(b);
+            cache.put(b, chars);
+        }
+        return chars;
+    }
+
+    // Line starts found while opening
+    public int[] getLineStarts() { return Arrays.copyOf(lineStarts, lineCount); }
+
+    // Decodes a single block from its mapping
+    private char[] decodeBlock(int b){
+        int w = (int) (blockBytes[b] / WINDOW_SIZE);
+        ByteBuffer bytes = windows[w].duplicate();
+        bytes.limit((int) (blockBytes[b + 1] - w * WINDOW_SIZE));
+        bytes.position((int) (blockBytes[b] - w * WINDOW_SIZE));
+        CharBuffer block = CharBuffer.allocate(BLOCK_SIZE + 1);
+        CharsetDecoder decoder = newDecoder(charset);
+        decoder.decode(bytes, block, true);
+        decoder.flush(block);
+        block.flip();
+
+        char[] chars = new char[blockChars[b + 1] - blockChars[b]];
+        int length = 0;
+        for(int i = 0; i < block.limit() && length < chars.length; i++){
+            char c = block.get(i);
+            if(c != '\r'){
+                chars[length++] = c;
+            }
+        }
+        return chars;
+    }
+
+    private static CharsetDecoder newDecoder(Charset charset){
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
@@ -0,0 +1,254 @@
+package Source.Logic;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Arrays;
+
+// Matches of a TextSearch in a document, as sorted start and end offsets, kept up to date as the document is edited
+// Searches with a fixed match length are matched again only around each edit, the matches after it are shifted
+// Other searches are marked dirty by an edit and have to be searched again
+// The version goes up on every edit, so comparing versions tells whether the document changed without reading it
+// Matches can also be found somewhere else, like a background search, and added in order between begin and finish
+public class MatchIndex implements DocumentListener {
+    private Document doc;                                           // Document being searched
+    private TextSearch search;                                      // Search the matches are for, or null
+    private int[] starts;                                           // Start of each match, in order
+    private int[] ends;                                             // End of each match
+    private int count;                                              // Number of matches
+    private long version;                                           // Number of edits seen
+    private boolean dirty;                                          // Matches are out of date
+    private boolean complete;                                       // All matches have been added
+
+    public MatchIndex(Document doc){
+        starts = new int[16];
+        ends = new int[16];
+        setDocument(doc);
+    }
+
+    // Follows another document, forgetting the matches of the old one
+    public void setDocument(Document doc){
+        if(this.doc != null){
+            this.doc.removeDocumentListener(this);
+        }
+        this.doc = doc;
+        doc.addDocumentListener(this);
+        clear();
+        version++;
+    }
+
+    // Finds every match of search in the whole document
+    public void search(TextSearch search){
+        this.search = search;
+        count = 0;
+        dirty = false;
+        TextSearch.Finder finder = search.finder(new DocumentText(doc));
+        while(finder.find()){
+            add(finder.start(), finder.end());
+        }
+        complete = true;
+    }
+
+    // Starts over with no matches for search, they are then added with add until finish is called
+    // An edit before then leaves the matches dirty, since the search may have read the text from before it
+    public void begin(TextSearch search){
+        this.search = search;
+        count = 0;
+        dirty = false;
+        complete = false;
+    }
+
+    // Adds a match after the last one
+    public void add(int start, int end){
+        if(count == starts.length){
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    // Marks the matches added since begin as all of them
+    public void finish(){
+        complete = true;
+    }
+
+    // Forgets the search and its matches
+    public void clear(){
+        search = null;
+        count = 0;
+        dirty = false;
+        complete = true;
+    }
+
+    // Getters
+    public TextSearch getSearch() { return search; }
+    public int size() { return count; }
+    public int getStart(int i) { return starts[i]; }
+    public int getEnd(int i) { return ends[i]; }
+    public long getVersion() { return version; }
+    public boolean isDirty() { return dirty; }
+    public boolean isComplete() { return complete; }
+
+    // Index of the first match that ends after offset, or size() if there is none
+    public int indexAfter(int offset){
+        int low = 0;
+        int high = count;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(ends[mid] <= offset){
+                low = mid + 1;
+            } else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Replaces every match with replacement as a single edit, from the start of the first match to the end of the
+    // last one, building the new text in one pass instead of shifting the text after each match
+    public void replaceAll(String replacement) throws BadLocationException{
+        if(count == 0){
+            return;
+        }
+        int from = starts[0];
+        int to = ends[count - 1];
+        long matched = 0;
+        for(int i = 0; i < count; i++){
+            matched += ends[i] - starts[i];
+        }
+        long newLength = (to - from) - matched + (long) count * replacement.length();
+        if(newLength > Integer.MAX_VALUE - 8){
+            throw new BadLocationException("Replaced text is too long", from);
+        }
+
+        StringBuilder sb = new StringBuilder((int) newLength);
+        Segment segment = new Segment();
+        segment.setPartialReturn(true);                             // Copies text between matches straight from storage
+        int position = from;
+        for(int i = 0; i < count; i++){
+            while(position < starts[i]){
+                doc.getText(position, starts[i] - position, segment);
+                sb.append(segment.array, segment.offset, segment.count);
+                position += segment.count;
+            }
+            sb.append(replacement);
+            position = ends[i];
+        }
+
+        if(doc instanceof AbstractDocument){
+            ((AbstractDocument) doc).replace(from, to - from, sb.toString(), null);
+        } else{
+            doc.remove(from, to - from);
+            doc.insertString(from, sb.toString(), null);
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e){
+        update(e.getOffset(), 0, e.getLength());
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e){
+        update(e.getOffset(), e.getLength(), 0);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) { }                  // Attributes do not change any match
+
+    // Updates the matches after removed characters at offset were replaced by inserted ones
+    private void update(int offset, int removed, int inserted){
+        version++;
+        if(search == null || dirty){
+            return;
+        }
+        int length = search.getMatchLength();
+        if(length <= 0 || !complete){                               // Any match could have changed
+            dirty = true;
+            return;
+        }
+        int delta = inserted - removed;
+        int editEnd = offset + inserted;                            // End of the new text
+
+        // Matches ending before the edit cannot have changed, a match ending right at it may lose its word boundary
+        int kept = indexAfter(offset - 1);
+        // Old matches that start after the removed text are unchanged apart from their offsets, they stay where they
+        // are until the new matches are known
+        int old = kept;                                             // Next old match not yet passed
+        while(old < count && starts[old] < offset + removed){
+            old++;
+        }
+
+        // Matches again from the last kept match, but not from before the characters the edit can affect
+        int from = (kept > 0) ? ends[kept - 1] : 0;
+        from = Math.max(from, offset - length - 1);
+        int docLength = doc.getLength();
+        TextSearch.Finder finder = search.finder(new DocumentText(doc));
+        int[] foundStarts = new int[4];                             // Matches found around the edit
+        int[] foundEnds = new int[4];
+        int found = 0;
+        while(true){
+            // Past the edit, and the old search found nothing between from and the next old match, so the new one
+            // would not either
+            int previousEnd = (old > kept) ? ends[old - 1] + delta : (kept > 0) ? ends[kept - 1] : 0;
+            boolean nextAfter = (old == count || starts[old] + delta >= from);
+            if(from > editEnd && previousEnd <= from && nextAfter){
+                break;
+            }
+            // Only as far as a match starting in the edit or at from can end, never to the end of the document
+            int reach = Math.max(from, editEnd);
+            int limit = Math.min(reach + length, docLength);
+            finder.region(from, limit);
+            if(!finder.find()){
+                if(limit == docLength){
+                    old = count;                                    // No matches left anywhere
+                    break;
+                }
+                from = reach + 1;                                   // Nothing starts from from to reach
+                while(old < count && starts[old] + delta < from){
+                    old++;
+                }
+                continue;
+            }
+            int start = finder.start();
+            while(old < count && starts[old] + delta < start){
+                old++;                                              // Old match that is no longer found
+            }
+            if(old < count && starts[old] + delta == start){
+                break;                                              // Same match as before, the rest follow
+            }
+            if(found == foundStarts.length){
+                foundStarts = Arrays.copyOf(foundStarts, found * 2);
+                foundEnds = Arrays.copyOf(foundEnds, found * 2);
+            }
+            foundStarts[found] = start;
+            foundEnds[found] = finder.end();
+            found++;
+            from = Math.max(finder.end(), start + 1);
+        }
+
+        // Moves the old matches that are still found right after the new ones and shifts them, in place
+        int tail = count - old;
+        int size = kept + found + tail;
+        if(size > starts.length){
+            starts = Arrays.copyOf(starts, Math.max(size, starts.length * 2));
+            ends = Arrays.copyOf(ends, starts.length);
+        }
+        System.arraycopy(starts, old, starts, kept + found, tail);
+        System.arraycopy(ends, old, ends, kept + found, tail);
+        if(delta != 0){
+            for(int i = kept + found; i < size; i++){
+                starts[i] += delta;
+                ends[i] += delta;
+            }
+        }
+        System.arraycopy(foundStarts, 0, starts, kept, found);
+        System.arraycopy(foundEnds, 0, ends, kept, found);
+        count = size;
+    }
+}
@@ -0,0 +1,130 @@
+package Source.Logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Finds every match of a TextSearch in a long text by searching segments of it at the same time in a ForkJoinPool
+// Each segment keeps the matches that start in it, read up to the longest match past its end, and the segments are
+// merged in order, searching again after a match that runs into the next segment until both agree
+// Searches without a longest match, and short texts, are searched in one pass instead
+public class ParallelSearch {
+    // Texts at least this long are searched in parallel, in segments of SEGMENT_SIZE characters
+    private static final int PARALLEL_THRESHOLD = 1 << 22;
+    private static final int SEGMENT_SIZE = 1 << 20;
+
+    // Receives each match, in order
+    public interface MatchConsumer {
+        void accept(int start, int end);
+    }
+
+    // Passes every match of search in text to consumer, in the order a single Finder would find them
+    // The text must not change while it is searched and must be safe to read from several threads, like DocumentText
+    // Interrupting the calling thread stops the search with a CancellationException, the segments still running stop
+    // once they read the text if it is an InterruptibleText made on the calling thread
+    public static void findAll(TextSearch search, CharSequence text, MatchConsumer consumer){
+        int length = text.length();
+        int maxLength = search.getMaxMatchLength();
+        if(maxLength < 0 || length < PARALLEL_THRESHOLD){
+            TextSearch.Finder finder = search.finder(text);
+            while(finder.find()){
+                consumer.accept(finder.start(), finder.end());
+            }
+            return;
+        }
+
+        List<SegmentTask> tasks = new ArrayList<>();
+        for(int start = 0; start <= length; start += SEGMENT_SIZE){
+            SegmentTask task = new SegmentTask(search, text, start, Math.min(start + SEGMENT_SIZE, length + 1),
+                    maxLength);
+            ForkJoinPool.commonPool().execute(task);
+            tasks.add(task);
+        }
+        try{
+            TextSearch.Finder finder = search.finder(text);         // Searches again where segments disagree
+            int lastEnd = -1;                                       // End of the last match passed on
+            int lastStart = -1;
+            for(SegmentTask task : tasks){
+                int[] found = task.get();
+                int i = 0;
+                if(found.length > 0 && found[0] < lastEnd){
+                    // The match before ran into this segment, so the first matches here may not be found when
+                    // searching on from it, going on like a single Finder until a match is one found here as well
+                    boolean synced = false;
+                    int from = (lastEnd == lastStart) ? lastEnd + 1 : lastEnd;
+                    while(finder.find(from) && finder.start() < task.end){
+                        while(i < found.length && found[i] < finder.start()){
+                            i += 2;                                 // Not found when searching on
+                        }
+                        if(i < found.length && found[i] == finder.start()){
+                            synced = true;                          // Same match as this segment, the rest agree
+                            break;
+                        }
+                        consumer.accept(finder.start(), finder.end());
+                        lastStart = finder.start();
+                        lastEnd = finder.end();
+                        from = (lastEnd == lastStart) ? lastEnd + 1 : lastEnd;
+                    }
+                    if(!synced){                                    // Every match of this segment was passed on
+                        continue;
+                    }
+                }
+                for(; i < found.length; i += 2){
+                    consumer.accept(found[i], found[i + 1]);
+                    lastStart = found[i];
+                    lastEnd = found[i + 1];
+                }
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();                     // Lets InterruptibleText stop the segments
+            throw new CancellationException("Search was cancelled");
+        } catch (ExecutionException e){
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally{
+            for(SegmentTask task : tasks){
+                task.cancel(false);                                 // Segments not started yet are not needed
+            }
+        }
+    }
+
+    // Matches that start between start and end, as start and end pairs
+    private static class SegmentTask extends RecursiveTask<int[]> {
+        private final TextSearch search;
+        private final CharSequence text;
+        private final int start;
+        private final int end;
+        private final int maxLength;
+
+        SegmentTask(TextSearch search, CharSequence text, int start, int end, int maxLength){
+            this.search = search;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        protected int[] compute(){
+            int[] found = new int[32];
+            int n = 0;
+            TextSearch.Finder finder = search.finder(text);
+            // A match starting in the segment ends at most maxLength after it, reading to there finds it whole
+            finder.region(start, (int) Math.min((long) end + maxLength, text.length()));
+            while(finder.find() && finder.start() < end){
+                if(n == found.length){
+                    found = Arrays.copyOf(found, n * 2);
+                }
+                found[n++] = finder.start();
+                found[n++] = finder.end();
+            }
+            return Arrays.copyOf(found, n);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package Source.Logic;
+
+// Works out the longest match a regular expression can have from its source, without compiling it
+// Anything it does not understand, any unbounded repetition and any back reference count as unbounded, and character
+// classes count as two characters in case they match a surrogate pair, so the result is never too small
+final class PatternLength {
+    static final int UNBOUNDED = -1;
+    private static final int LIMIT = 1 << 20;                       // Longer bounds count as unbounded
+
+    private final String regex;
+    private int pos;                                                // Next character of regex to read
+
+    private PatternLength(String regex){
+        this.regex = regex;
+    }
+
+    // Most characters a match of regex can span, or UNBOUNDED
+    static int max(String regex){
+        PatternLength parser = new PatternLength(regex);
+        try{
+            int length = parser.alternation();
+            return (parser.pos == regex.length()) ? length : UNBOUNDED;
+        } catch (IndexOutOfBoundsException | NumberFormatException e){
+            return UNBOUNDED;                                       // Not a valid pattern, or not one understood
+        }
+    }
+
+    // Branches separated by |, up to a ) or the end
+    private int alternation(){
+        int max = sequence();
+        while(pos < regex.length() && regex.charAt(pos) == '|'){
+            pos++;
+            int branch = sequence();
+            max = (max == UNBOUNDED || branch == UNBOUNDED) ? UNBOUNDED : Math.max(max, branch);
+        }
+        return max;
+    }
+
+    // Atoms one after the other, each with its quantifier
+    private int sequence(){
+        int total = 0;
+        while(pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')'){
+            total = add(total, quantifier(atom()));
+        }
+        return total;
+    }
+
+    // Longest match of the atom at pos
+    private int atom(){
+        char c = regex.charAt(pos++);
+        switch(c){
+            case '(':
+                return group();
+            case '[':
+                charClass();
+                return 2;
+            case '.':
+                return 2;
+            case '^':
+            case '$':
+                return 0;
+            case '\\':
+                return escape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                return UNBOUNDED;                                   // Quantifier with nothing to repeat
+            default:
+                // A surrogate pair is one code point, so a quantifier after it repeats both chars
+                if(Character.isHighSurrogate(c) && pos < regex.length()
+                        && Character.isLowSurrogate(regex.charAt(pos))){
+                    pos++;
+                    return 2;
+                }
+                return 1;
+        }
+    }
+
+    // Group after its (, up to and including the )
+    private int group(){
+        boolean zeroWidth = false;
+        if(regex.charAt(pos) == '?'){
+            pos++;
+            char c = regex.charAt(pos);
+            if(c == ':' || c == '>' || c == '=' || c == '!'){       // Non capturing, atomic or lookahead
+                zeroWidth = (c == '=' || c == '!');
+                pos++;
+            } else if(c == '<'){
+                char next = regex.charAt(pos + 1);
+                if(next == '=' || next == '!'){                     // Lookbehind
+                    zeroWidth = true;
+                    pos += 2;
+                } else{                                             // Named group
+                    pos = regex.indexOf('>', pos) + 1;
+                    if(pos == 0){
+                        return UNBOUNDED;
+                    }
+                }
+            } else{                                                 // Flags, alone or for the group
+                while(Character.isLetter(regex.charAt(pos)) || regex.charAt(pos) == '-'){
+                    pos++;
+                }
+                if(regex.charAt(pos) == ')'){
+                    pos++;
+                    return 0;
+                }
+                if(regex.charAt(pos++) != ':'){
+                    return UNBOUNDED;
+                }
+            }
+        }
+        int length = alternation();
+        if(regex.charAt(pos++) != ')'){
+            return UNBOUNDED;
+        }
+        return zeroWidth ? 0 : length;                              // Lookaround can read past a match, not grow it
+    }
+
+    // Escape after its backslash
+    private int escape(){
+        char c = regex.charAt(pos++);
+        switch(c){
+            case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+            case 'k':
+            case 'X':
+                return UNBOUNDED;                                   // Back references and grapheme clusters
+            case 'Q':                                               // Quoted up to \E or the end
+                int end = regex.indexOf("\\E", pos);
+                int quoted = ((end < 0) ? regex.length() : end) - pos;
+                pos = (end < 0) ? regex.length() : end + 2;
+                return quoted;
+            case 'b':
+            case 'B':
+            case 'A':
+            case 'G':
+            case 'z':
+            case 'Z':
+                skipBraces();                                       // Like \b{g}
+                return 0;
+            case 'R':
+                return 2;                                           // \r\n at most
+            case 'p':
+            case 'P':
+            case 'N':
+            case 'x':
+                if(!skipBraces()){
+                    pos += (c == 'x') ? 2 : 1;
+                }
+                return 2;
+            case 'u':
+                char unit = (char) Integer.parseInt(regex.substring(pos, pos + 4), 16);
+                pos += 4;
+                // Escaped surrogates that make a pair are one code point too, like \uD83D\uDE00
+                if(Character.isHighSurrogate(unit) && regex.startsWith("\\u", pos) && pos + 6 <= regex.length()
+                        && Character.isLowSurrogate((char) Integer.parseInt(regex.substring(pos + 2, pos + 6), 16))){
+                    pos += 6;
+                    return 2;
+                }
+                return 1;
+            case '0':
+                for(int i = 0; i < 3 && pos < regex.length() && isOctal(regex.charAt(pos)); i++){
+                    pos++;
+                }
+                return 1;
+            case 'c':
+                pos++;
+                return 1;
+            default:
+                return 2;                                           // Predefined class or escaped character
+        }
+    }
+
+    // Character class after its [, up to and including the ], classes can be nested
+    private void charClass(){
+        if(regex.charAt(pos) == '^'){
+            pos++;
+        }
+        if(regex.charAt(pos) == ']'){                               // A ] right at the start is a character
+            pos++;
+        }
+        int depth = 1;
+        while(depth > 0){
+            char c = regex.charAt(pos++);
+            if(c == '\\'){
+                char escaped = regex.charAt(pos++);
+                if(escaped == 'Q'){
+                    int end = regex.indexOf("\\E", pos);
+                    if(end < 0){
+                        throw new IndexOutOfBoundsException("Unclosed class");
+                    }
+                    pos = end + 2;
+                } else{
+                    skipBraces();
+                }
+            } else if(c == '['){
+                depth++;
+            } else if(c == ']'){
+                depth--;
+            }
+        }
+    }
+
+    // Applies the quantifier at pos, if there is one, to an atom of the given length
+    private int quantifier(int length){
+        if(pos == regex.length()){
+            return length;
+        }
+        int max;
+        char c = regex.charAt(pos);
+        if(c == '?'){
+            pos++;
+            max = length;
+        } else if(c == '*' || c == '+'){
+            pos++;
+            max = (length == 0) ? 0 : UNBOUNDED;
+        } else if(c == '{'){
+            int close = regex.indexOf('}', pos);
+            String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+            pos = close + 1;
+            if(bounds.length == 1){
+                max = multiply(length, Integer.parseInt(bounds[0].trim()));
+            } else if(bounds[1].isEmpty()){
+                max = (length == 0) ? 0 : UNBOUNDED;
+            } else{
+                max = multiply(length, Integer.parseInt(bounds[1].trim()));
+            }
+        } else{
+            return length;
+        }
+        if(pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')){
+            pos++;                                                  // Lazy or possessive
+        }
+        return max;
+    }
+
+    // Skips a {...} at pos, returns false if there is none
+    private boolean skipBraces(){
+        if(pos < regex.length() && regex.charAt(pos) == '{'){
+            pos = regex.indexOf('}', pos) + 1;
+            if(pos == 0){
+                throw new IndexOutOfBoundsException("Unclosed brace");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isOctal(char c){
+        return c >= '0' && c <= '7';
+    }
+
+    private static int add(int a, int b){
+        if(a == UNBOUNDED || b == UNBOUNDED || (long) a + b > LIMIT){
+            return UNBOUNDED;
+        }
+        return a + b;
+    }
+
+    private static int multiply(int length, int times){
+        if(length == UNBOUNDED || (long) length * times > LIMIT){
+            return UNBOUNDED;
+        }
+        return length * times;
+    }
+}
@@ -0,0 +1,302 @@
+package Source.Logic;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.UndoableEdit;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Document content made of pieces of a MappedText and of an append only buffer holding every inserted string
+// The mapped text is never copied onto the heap, an edit only splits the piece it lands in
+// Like every Content it ends with an implied newline that is not part of the document text
+public class PieceTableContent implements AbstractDocument.Content {
+    private static final char[] NEWLINE = {'\n'};                   // The implied newline
+
+    private final MappedText original;                              // Text of the opened file
+    private char[] added;                                           // Every inserted string, one after another
+    private int addedLength;
+    private final ArrayList<Piece> pieces;                          // Pieces in document order
+    private int length;                                             // Length of the text, without the newline
+    private final ArrayList<WeakReference<Mark>> marks;             // Positions handed out, updated on every edit
+    private volatile Lookup lastLookup;                             // Piece found by the last lookup, for nearby reads
+
+    // Empty content, the mapped text is only added by load so that positions created before then move with it
+    public PieceTableContent(MappedText original){
+        this.original = original;
+        added = new char[1024];
+        addedLength = 0;
+        pieces = new ArrayList<>();
+        length = 0;
+        marks = new ArrayList<>();
+        lastLookup = new Lookup(0, 0);
+    }
+
+    // Adds the whole mapped text at the start, as if it was inserted there
+    void load(){
+        if(original.length() > 0){
+            pieces.add(0, new Piece(false, 0, original.length()));
+            length += original.length();
+            shiftMarks(0, original.length());
+        }
+    }
+
+    @Override
+    public synchronized Position createPosition(int offset) throws BadLocationException{
+        if(offset < 0 || offset > length + 1){
+            throw new BadLocationException("Invalid position", offset);
+        }
+        Mark mark = new Mark(offset);
+        marks.add(new WeakReference<>(mark));
+        return mark;
+    }
+
+    @Override
+    public int length(){
+        return length + 1;
+    }
+
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException{
+        if(where < 0 || where > length){
+            throw new BadLocationException("Invalid insert", where);
+        }
+        int n = str.length();
+        if(n == 0){
+            return null;
+        }
+        if(addedLength + n > added.length){
+            added = Arrays.copyOf(added, Math.max(added.length * 2, addedLength + n));
+        }
+        str.getChars(0, n, added, addedLength);
+
+        Lookup lookup = findPiece(where);
+        int index = lookup.index;
+        int offsetInPiece = where - lookup.start;
+        Piece previous = (offsetInPiece == 0 && index > 0) ? pieces.get(index - 1) : null;
+        if(previous != null && previous.added && previous.start + previous.length == addedLength){
+            previous.length += n;                                   // Typing at the end of the last insert
+        } else if(index < pieces.size() && offsetInPiece > 0){
+            // Splits the piece and puts the new text in between
+            Piece piece = pieces.get(index);
+            Piece tail = new Piece(piece.added, piece.start + offsetInPiece, piece.length - offsetInPiece);
+            piece.length = offsetInPiece;
+            pieces.add(index + 1, new Piece(true, addedLength, n));
+            pieces.add(index + 2, tail);
+        } else{
+            pieces.add(index, new Piece(true, addedLength, n));
+        }
+        addedLength += n;
+        length += n;
+        lastLookup = new Lookup(0, 0);                              // Pieces moved, starts the next lookup over
+        shiftMarks(where, n);
+        return null;                                                // Undo is not supported
+    }
+
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException{
+        if(where < 0 || nitems < 0 || where + nitems > length){
+            throw new BadLocationException("Invalid remove", where);
+        }
+        if(nitems == 0){
+            return null;
+        }
+        Lookup lookup = findPiece(where);
+        int index = lookup.index;
+        int offsetInPiece = where - lookup.start;
+        if(offsetInPiece > 0){                                      // Splits off the part before where
+            Piece piece = pieces.get(index);
+            Piece tail = new Piece(piece.added, piece.start + offsetInPiece, piece.length - offsetInPiece);
+            piece.length = offsetInPiece;
+            pieces.add(++index, tail);
+        }
+        int left = nitems;
+        while(left > 0){
+            Piece piece = pieces.get(index);
+            if(piece.length <= left){                               // Whole piece goes
+                left -= piece.length;
+                pieces.remove(index);
+            } else{                                                 // Front of the piece goes
+                piece.start += left;
+                piece.length -= left;
+                left = 0;
+            }
+        }
+        length -= nitems;
+        lastLookup = new Lookup(0, 0);
+
+        // Positions inside the removed text move to where, positions after it move back
+        int end = where + nitems;
+        forEachMark(mark -> {
+            if(mark.offset > end){
+                mark.offset -= nitems;
+            } else if(mark.offset > where){
+                mark.offset = where;
+            }
+        });
+        return null;
+    }
+
+    @Override
+    public String getString(int where, int len) throws BadLocationException{
+        Segment segment = new Segment();
+        getChars(where, len, segment);
+        return segment.toString();
+    }
+
+    @Override
+    public void getChars(int where, int len, Segment txt) throws BadLocationException{
+        if(where < 0 || len < 0 || where + len > length + 1){
+            throw new BadLocationException("Invalid range", where);
+        }
+        if(len == 0){
+            txt.array = NEWLINE;
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+        if(where == length){                                        // Only the implied newline
+            txt.array = NEWLINE;
+            txt.offset = 0;
+            txt.count = 1;
+            return;
+        }
+
+        // Points the segment at the stored characters when they are in one place
+        Lookup lookup = findPiece(where);
+        int index = lookup.index;
+        Piece piece = pieces.get(index);
+        int offsetInPiece = where - lookup.start;
+        int available = piece.length - offsetInPiece;
+        if(piece.added){
+            if(len <= available || txt.isPartialReturn()){
+                txt.array = added;
+                txt.offset = piece.start + offsetInPiece;
+                txt.count = Math.min(len, available);
+                return;
+            }
+        } else{
+            int textOffset = piece.start + offsetInPiece;
+            int b = original.blockOf(textOffset);
+            char[] block = original.getBlock(b);
+            int inBlock = textOffset - original.blockStart(b);
+            int contiguous = Math.min(available, block.length - inBlock);
+            if(len <= contiguous || txt.isPartialReturn()){
+                txt.array = block;
+                txt.offset = inBlock;
+                txt.count = Math.min(len, contiguous);
+                return;
+            }
+        }
+
+        // Copies the range piece by piece otherwise
+        char[] chars = new char[len];
+        int copied = 0;
+        int pieceStart = lookup.start;
+        while(copied < len){
+            if(index == pieces.size()){                             // Reached the implied newline
+                chars[copied++] = '\n';
+                break;
+            }
+            piece = pieces.get(index);
+            int from = where + copied - pieceStart;
+            int count = Math.min(len - copied, piece.length - from);
+            if(piece.added){
+                System.arraycopy(added, piece.start + from, chars, copied, count);
+            } else{
+                original.getChars(piece.start + from, piece.start + from + count, chars, copied);
+            }
+            copied += count;
+            pieceStart += piece.length;
+            index++;
+        }
+        txt.array = chars;
+        txt.offset = 0;
+        txt.count = len;
+    }
+
+    // Piece holding offset, or the number of pieces when offset is the end of the text
+    // Searches on from the last lookup when it is before offset, since reads mostly move forward
+    // Readers can run on several threads at once, so the last lookup is replaced rather than changed
+    private Lookup findPiece(int offset){
+        Lookup last = lastLookup;
+        int index = last.index;
+        int start = last.start;
+        if(start > offset || index > pieces.size()){
+            index = 0;
+            start = 0;
+        }
+        while(index < pieces.size() && start + pieces.get(index).length <= offset){
+            start += pieces.get(index).length;
+            index++;
+        }
+        Lookup lookup = new Lookup(index, start);
+        lastLookup = lookup;
+        return lookup;
+    }
+
+    // Moves positions for an insertion of n characters at where
+    // A position at where moves with the insertion, unless it is at the very start of the document
+    private void shiftMarks(int where, int n){
+        forEachMark(mark -> {
+            if(mark.offset > where || (mark.offset == where && where != 0)){
+                mark.offset += n;
+            }
+        });
+    }
+
+    // Runs action on every position still in use, forgetting the rest
+    private synchronized void forEachMark(Consumer<Mark> action){
+        int kept = 0;
+        for(int i = 0; i < marks.size(); i++){
+            WeakReference<Mark> ref = marks.get(i);
+            Mark mark = ref.get();
+            if(mark != null){
+                action.accept(mark);
+                marks.set(kept++, ref);
+            }
+        }
+        marks.subList(kept, marks.size()).clear();
+    }
+
+    // Part of the document taken from the mapped text or from the added buffer
+    private static class Piece {
+        private final boolean added;
+        private int start;
+        private int length;
+
+        Piece(boolean added, int start, int length){
+            this.added = added;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    // Index of a piece and the offset it starts at
+    private static class Lookup {
+        private final int index;
+        private final int start;
+
+        Lookup(int index, int start){
+            this.index = index;
+            this.start = start;
+        }
+    }
+
+    // Position that moves with the edits made around it
+    private static class Mark implements Position {
+        private int offset;
+
+        Mark(int offset){
+            this.offset = offset;
+        }
+
+        @Override
+        public int getOffset(){
+            return offset;
+        }
+    }
+}
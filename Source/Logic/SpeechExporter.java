@@ -0,0 +1,318 @@
+package Source.Logic;
+
+import Libraries.MaryTTS.Tutorial.SentencePipeline;
+import Libraries.MaryTTS.Tutorial.WaveWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import marytts.LocalMaryInterface;
+import marytts.MaryInterface;
+import marytts.exceptions.MaryConfigurationException;
+import marytts.exceptions.SynthesisException;
+
+// Headless mode that reads files, directories and globs aloud into WAV files, for narrating documents offline
+// Synthesizes on a bounded pool of MaryTTS instances, one per thread, and never loads Swing or opens an audio line
+public class SpeechExporter {
+    // Command line
+    public static final String FLAG = "--tts-export";
+    private static final String OUT_OPTION = "--out=";
+    private static final String THREADS_OPTION = "--threads=";
+    private static final String VOICE_OPTION = "--voice=";
+    private static final String SECTIONS_OPTION = "--sections";
+    private static final String USAGE = "Usage: " + FLAG + " [" + OUT_OPTION + "directory] [" + THREADS_OPTION + "n] ["
+            + VOICE_OPTION + "name] [" + SECTIONS_OPTION + "] <file|directory|glob>...";
+    private static final String SECTION_BREAK = "\\n\\s*\\n";       // A blank line ends a section
+    private static final String PART_SUFFIX = ".part";              // Renamed once the file is complete
+    private static final int MAX_PENDING_PER_THREAD = 2;            // Texts queued ahead of each thread
+
+    private final Path outDir;                                      // Where the WAV files go
+    private final int threads;                                      // Sections synthesized at the same time
+    private final String voice;                                     // Null for the MaryTTS default
+    private final boolean sections;                                 // One WAV per section instead of per file
+    private final PrintStream out;                                  // Where records go
+    private final PrintStream err;                                  // Where errors and stats go
+
+    // Idle MaryTTS instances, one per thread, each one is only used by one thread at a time
+    private final BlockingQueue<MaryInterface> pool;
+
+    // Totals of the records reported so far
+    private long characters;
+    private double audioSeconds;
+    private double synthesisSeconds;                                // Summed over the threads
+
+    public SpeechExporter(Path outDir, int threads, String voice, boolean sections, PrintStream out, PrintStream err){
+        this.outDir = outDir;
+        this.threads = threads;
+        this.voice = voice;
+        this.sections = sections;
+        this.out = out;
+        this.err = err;
+        this.pool = new ArrayBlockingQueue<>(threads);
+    }
+
+    // Entry point from Main, args start with FLAG, returns the exit status
+    public static int run(String[] args){
+        System.setProperty("java.awt.headless", "true");           // Nothing MaryTTS loads may open a window
+        Path outDir = Paths.get("");
+        int threads = Runtime.getRuntime().availableProcessors();
+        String voice = null;
+        boolean sections = false;
+        List<String> inputs = new ArrayList<>();
+        for(int i = 1; i < args.length; i++){
+            String arg = args[i];
+            if(arg.startsWith(OUT_OPTION)){
+                outDir = Paths.get(arg.substring(OUT_OPTION.length()));
+            } else if(arg.startsWith(THREADS_OPTION)){
+                try{
+                    threads = Math.max(1, Integer.parseInt(arg.substring(THREADS_OPTION.length())));
+                } catch (NumberFormatException e){
+                    System.err.println(USAGE);
+                    return 2;
+                }
+            } else if(arg.startsWith(VOICE_OPTION)){
+                voice = arg.substring(VOICE_OPTION.length());
+            } else if(arg.equals(SECTIONS_OPTION)){
+                sections = true;
+            } else{
+                inputs.add(arg);
+            }
+        }
+        if(inputs.isEmpty()){
+            System.err.println(USAGE);
+            return 2;
+        }
+        return new SpeechExporter(outDir, threads, voice, sections, System.out, System.err).export(inputs);
+    }
+
+    // Exports every file the inputs resolve to, printing one record per WAV file as soon as it is written
+    public int export(List<String> inputs){
+        long startTime = System.nanoTime();
+        Set<Path> files = new LinkedHashSet<>();                    // Keeps order and drops duplicates
+        int status = 0;
+        for(String input : inputs){
+            try{
+                BatchAnalyzer.resolve(input, files);
+            } catch (IOException e){
+                err.println("Could not read " + input + ": " + e.getMessage());
+                status = 1;
+            }
+        }
+        try{
+            Files.createDirectories(outDir);
+        } catch (IOException e){
+            err.println("Could not create " + outDir + ": " + e.getMessage());
+            return 1;
+        }
+        // Made before any work is queued, so a voice that does not exist stops the export at once
+        try{
+            fillPool();
+        } catch (MaryConfigurationException | IllegalArgumentException e){
+            err.println("Could not load MaryTTS" + (voice != null ? " with the voice " + voice : "") + ": "
+                    + e.getMessage());
+            return 1;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);  // One MaryTTS per thread at most
+        CompletionService<Record> completion = new ExecutorCompletionService<>(executor);
+        Set<String> names = new HashSet<>();                        // Output names taken so far
+        int tasks = 0;
+        int pending = 0;
+        try{
+            for(Path file : files){
+                String text;
+                try{
+                    text = FileLoader.load(file, FileLoader.TEXT_CHARSET, null);
+                } catch (IOException | OutOfMemoryError e){
+                    Record record = new Record(file.toString(), null);
+                    record.error = e.toString();
+                    status |= report(record);
+                    continue;
+                }
+                // Sections are queued separately so one long file is spread over every thread
+                String[] parts = sections ? text.split(SECTION_BREAK) : new String[]{text};
+                String base = uniqueName(baseName(file), names);
+                int number = 0;
+                for(String part : parts){
+                    if(part.isBlank()){
+                        continue;
+                    }
+                    // Only a few texts wait for a thread, so thousands of documents are never all in memory
+                    for(; pending >= MAX_PENDING_PER_THREAD * threads; pending--){
+                        status |= report(completion.take().get());
+                    }
+                    number++;
+                    String name = sections ? String.format("%s-%03d.wav", base, number) : base + ".wav";
+                    Path wav = outDir.resolve(name);
+                    completion.submit(() -> exportText(file.toString(), part, wav));
+                    tasks++;
+                    pending++;
+                }
+            }
+            for(; pending > 0; pending--){
+                status |= report(completion.take().get());           // Whichever section finishes next
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            status = 1;
+        } catch (ExecutionException e){
+            e.printStackTrace();
+            status = 1;
+        } finally{
+            executor.shutdownNow();
+        }
+        out.flush();
+
+        // Real-time factor is synthesis time over audio time, below 1 is faster than real time
+        double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-9);
+        err.printf("%d files, %d WAV files, %.1f s of audio in %.3f s with %d MaryTTS instances%n",
+                files.size(), tasks, audioSeconds, seconds, threads);
+        err.printf("Real-time factor %.3f per thread, %.3f overall (%.1fx real time), %.0f characters/s, %.2f files/s%n",
+                audioSeconds > 0 ? synthesisSeconds / audioSeconds : 0, audioSeconds > 0 ? seconds / audioSeconds : 0,
+                audioSeconds / seconds, characters / seconds, files.size() / seconds);
+        return status;
+    }
+
+    // Prints a record and adds it to the totals, returns 1 if it failed
+    private int report(Record record){
+        out.println(record.toJson());
+        characters += record.characters;
+        audioSeconds += record.audioSeconds;
+        synthesisSeconds += record.seconds;
+        return record.error == null ? 0 : 1;
+    }
+
+    // Synthesizes one text a sentence at a time into a WAV file, runs on the executor
+    private Record exportText(String source, String text, Path wav){
+        Record record = new Record(source, wav.toString());
+        record.characters = text.length();
+        long startTime = System.nanoTime();
+        Path part = wav.resolveSibling(wav.getFileName() + PART_SUFFIX);
+        MaryInterface marytts = null;
+        WaveWriter writer = null;
+        boolean moved = false;                                      // The WAV file is complete and in place
+        try{
+            marytts = pool.take();
+            for(String sentence : SentencePipeline.sentencesOf(text)){
+                try(AudioInputStream audio = marytts.generateAudio(sentence)){
+                    AudioInputStream pcm = audio;
+                    if(writer == null){
+                        writer = new WaveWriter(part, WaveWriter.waveFormatOf(audio.getFormat()));
+                    }
+                    if(!audio.getFormat().matches(writer.getFormat())){
+                        pcm = AudioSystem.getAudioInputStream(writer.getFormat(), audio);
+                    }
+                    writer.write(pcm);                              // Streamed to disk, not kept in memory
+                }
+            }
+            if(writer == null){
+                throw new IOException("No text to read");
+            }
+            writer.close();
+            record.audioSeconds = writer.getSeconds();
+            Files.move(part, wav, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } catch (IOException | SynthesisException | RuntimeException e){
+            record.error = e.toString();                            // Only this text fails, the export goes on
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            record.error = e.toString();
+        } finally{
+            if(marytts != null){
+                pool.offer(marytts);
+            }
+            if(!moved){
+                try{
+                    if(writer != null){
+                        writer.close();
+                    }
+                    Files.deleteIfExists(part);                     // No half written files are left behind
+                } catch (IOException e){
+                    // The error is already reported
+                }
+            }
+        }
+        record.seconds = (System.nanoTime() - startTime) / 1e9;
+        return record;
+    }
+
+    // Makes a MaryTTS with the voice for each thread, MaryTTS throws IllegalArgumentException for an unknown voice
+    private void fillPool() throws MaryConfigurationException{
+        for(int i = 0; i < threads; i++){
+            MaryInterface marytts = new LocalMaryInterface();
+            if(voice != null){
+                marytts.setVoice(voice);
+            }
+            pool.add(marytts);
+        }
+    }
+
+    // File name without its extension
+    private static String baseName(Path file){
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    // Name that no other input has taken, files with the same name in different directories get a number
+    private static String uniqueName(String name, Set<String> names){
+        String unique = name;
+        for(int i = 2; !names.add(unique); i++){
+            unique = name + "-" + i;
+        }
+        return unique;
+    }
+
+    // Result for a single WAV file
+    private static class Record {
+        private final String file;
+        private final String wav;
+        private long characters;
+        private double audioSeconds;
+        private double seconds;                                     // Time spent synthesizing and writing
+        private String error;
+
+        Record(String file, String wav){
+            this.file = file;
+            this.wav = wav;
+        }
+
+        String toJson(){
+            StringBuilder sb = new StringBuilder("{\"file\":");
+            JsonStrings.append(sb, file);
+            if(wav != null){
+                sb.append(",\"wav\":");
+                JsonStrings.append(sb, wav);
+            }
+            sb.append(",\"characters\":").append(characters);
+            if(error == null){
+                sb.append(String.format(Locale.ROOT, ",\"audioSeconds\":%.3f,\"seconds\":%.3f,\"realTimeFactor\":%.3f",
+                        audioSeconds, seconds, audioSeconds > 0 ? seconds / audioSeconds : 0));
+            } else{
+                sb.append(",\"error\":");
+                JsonStrings.append(sb, error);
+            }
+            return sb.append('}').toString();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package Source.Logic;
+
+import Libraries.MaryTTS.Tutorial.AudioCache;
+import Libraries.MaryTTS.Tutorial.TextToSpeech;
+import Libraries.MaryTTS.Tutorial.VoicePool;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Loads MaryTTS and its voice on a background thread the first time it is needed, instead of before the window shows
+// Loading the voice jars takes longer than everything else at startup, and most sessions never read text aloud
+public class SpeechLoader {
+    // Sentences read before play again without being synthesized, from memory or from the user's home folder
+    private static final long AUDIO_MEMORY_BUDGET = 32L << 20;      // About 17 minutes of 16 kHz speech
+    private static final Path AUDIO_CACHE_DIRECTORY = Path.of(System.getProperty("user.home"), ".illud", "speech");
+    private static final long AUDIO_DISK_BUDGET = 256L << 20;
+    // Voices warmed up ahead of being picked once the Voice menu is opened, each keeps its data in memory for as long
+    // as the program runs, -Dillud.tts.warmVoices=n changes how many
+    private static final int WARM_VOICES = Integer.getInteger("illud.tts.warmVoices", 2);
+
+    private final String voice;                                     // Voice selected once MaryTTS is loaded
+    private CompletableFuture<TextToSpeech> engine;                 // Null until loading starts
+    private volatile long loadMillis = -1;                          // How long loading took, once it is done
+
+    public SpeechLoader(String voice){
+        this.voice = voice;
+    }
+
+    // Starts loading if it has not started yet, the future fails if MaryTTS could not be loaded
+    public synchronized CompletableFuture<TextToSpeech> load(){
+        if(engine == null){
+            long startTime = System.nanoTime();
+            engine = CompletableFuture.supplyAsync(() -> {
+                TextToSpeech tts = new TextToSpeech();              // Reads the voice jars
+                if(tts.getMarytts() == null){
+                    throw new IllegalStateException("MaryTTS could not be loaded");
+                }
+                tts.setAudioCache(new AudioCache(AUDIO_MEMORY_BUDGET, AUDIO_CACHE_DIRECTORY, AUDIO_DISK_BUDGET));
+
+                // Every voice found can be selected, only this one is loaded until the user looks at the others
+                List<String> voices = tts.getAvailableVoiceNames();
+                tts.setVoicePool(new VoicePool());
+                tts.selectVoice(voices.contains(voice) || voices.isEmpty() ? voice : voices.get(0)).join();
+                loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                return tts;
+            }, runnable -> {
+                Thread thread = new Thread(runnable, "Speech loader");
+                thread.setDaemon(true);                             // Does not keep the program running
+                thread.setPriority(Thread.MIN_PRIORITY);            // Stays out of the way of the UI
+                thread.start();
+            });
+        }
+        return engine;
+    }
+
+    // Warms up the first few voices other than the one in use in the background, so picking one of them is quick
+    public void warmOtherVoices(TextToSpeech tts){
+        List<String> others = new ArrayList<>(tts.getAvailableVoiceNames());
+        others.remove(tts.getVoice());
+        tts.getVoicePool().warmAll(others.subList(0, Math.min(WARM_VOICES, others.size())));
+    }
+
+    // True once MaryTTS is loaded and ready to speak
+    public synchronized boolean isLoaded(){
+        return engine != null && engine.isDone() && !engine.isCompletedExceptionally();
+    }
+
+    // Milliseconds loading took, or -1 if it is not done
+    public long getLoadMillis(){
+        return loadMillis;
+    }
+}
@@ -0,0 +1,380 @@
+package Source.Logic;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Trigram index of a document, so that searches only read the parts of it that can hold a match
+// The document is split into blocks, and each trigram, with case folded, has a bit for every block it starts in
+// Each block keeps its bits in an array of its own, so rebuilding some blocks only copies those blocks' arrays
+// Blocks and trigram buckets are sized from the document length to fit a memory budget, set in bytes with
+// -Dillud.index.maxBytes
+// A search is then only run over the blocks that hold every trigram of the text its matches have to contain
+// The index is built on a background thread once the document has been quiet for a while, and only for long
+// documents, since short ones are searched quickly enough without it
+// An edit marks the blocks around it as dirty and shifts the ones after it, dirty blocks count as holding every
+// trigram until they are indexed again, so an edit never has to wait for the index and never makes it wrong
+public class TextIndex implements DocumentListener {
+    private static final int INDEX_THRESHOLD = 1 << 20;             // Shortest document indexed
+    private static final int MIN_BLOCK_SIZE = 1 << 12;              // Characters per block, unless there are too many
+    private static final int MAX_BLOCKS = 1 << 12;
+    private static final int MAX_BUCKET_BITS = 16;                  // Trigrams share bits by their hash
+    private static final int MIN_BUCKET_BITS = 10;                  // Fewer buckets would let most trigrams through
+    private static final long MAX_INDEX_BYTES = Long.getLong("illud.index.maxBytes", 8L << 20);
+    private static final long IDLE_MILLIS = 2000;                   // Quiet time before the index is brought up to date
+    private static final char[] FOLD = new char[Character.MAX_VALUE + 1];   // Case folded character, like LiteralSearch
+
+    static{
+        for(int c = 0; c <= Character.MAX_VALUE; c++){
+            FOLD[c] = Character.toLowerCase(Character.toUpperCase((char) c));
+        }
+    }
+
+    private volatile Document doc;                                  // Document being indexed
+    private volatile Snapshot snapshot;                             // Index of the document as it is, or null
+    private final AtomicLong version;                               // Increases on every edit of the document
+    private final ScheduledExecutorService executor;                // Builds the index
+    private ScheduledFuture<?> scheduled;                           // Latest build
+
+    public TextIndex(Document doc){
+        version = new AtomicLong();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Illud index");
+            thread.setDaemon(true);                                 // Does not keep the program open
+            return thread;
+        });
+        setDocument(doc);
+    }
+
+    // Follows another document, the old index is dropped and the new one is built once it is quiet
+    public void setDocument(Document doc){
+        if(this.doc != null){
+            this.doc.removeDocumentListener(this);
+        }
+        this.doc = doc;
+        doc.addDocumentListener(this);
+        version.incrementAndGet();
+        snapshot = null;
+        schedule();
+    }
+
+    // Passes every match of search in text to consumer, in order, only searching the blocks that can hold one
+    // text has to be the document as it is now, read safely from the calling thread
+    // Returns false without passing on anything if the index cannot answer the search, which then needs a full search
+    public boolean findAll(TextSearch search, CharSequence text, ParallelSearch.MatchConsumer consumer){
+        Snapshot index = snapshot;
+        if(index == null || index.length != text.length()){
+            return false;
+        }
+        int[] trigrams = trigramsOf(search.getRequiredText(), index.bucketBits);
+        if(trigrams.length == 0){
+            return false;                                           // Nothing to look up
+        }
+        int maxLength = search.getMaxMatchLength();
+        if(maxLength < 0){
+            // Matches could start anywhere before the text they contain, the index can only tell there are none
+            for(int trigram : trigrams){
+                if(!index.anywhere(trigram)){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // A match starting in a block can only reach a few blocks after it, and its trigrams start in those
+        int n = index.starts.length;
+        boolean[] candidates = new boolean[n];
+        int last = 0;                                               // Last block a match in block b can reach
+        for(int b = 0; b < n; b++){
+            while(last + 1 < n && index.starts[last + 1] <= (long) index.end(b) + maxLength){
+                last++;
+            }
+            candidates[b] = index.holdsAll(trigrams, b, Math.max(last, b));
+        }
+
+        TextSearch.Finder finder = search.finder(text);
+        int from = 0;                                               // Where the next match can start
+        int b = 0;
+        while(b < n){
+            if(!candidates[b]){
+                b++;
+                continue;
+            }
+            int runEnd = b + 1;                                     // Searches a run of candidate blocks at once
+            while(runEnd < n && candidates[runEnd]){
+                runEnd++;
+            }
+            int end = index.end(runEnd - 1);
+            from = Math.max(from, index.starts[b]);
+            if(from < end){
+                // Matches are searched for as a single Finder would, from the end of the last one
+                finder.region(from, (int) Math.min((long) end + maxLength, text.length()));
+                while(finder.find() && finder.start() < end){
+                    consumer.accept(finder.start(), finder.end());
+                    from = (finder.end() == finder.start()) ? finder.end() + 1 : finder.end();
+                }
+            }
+            b = runEnd;
+        }
+        return true;
+    }
+
+    // Stops the build thread
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e){
+        edited(e.getOffset(), 0, e.getLength());
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e){
+        edited(e.getOffset(), e.getLength(), 0);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) { }                  // Attributes do not change the text
+
+    // Keeps the index right after removed characters at offset were replaced by inserted ones
+    private void edited(int offset, int removed, int inserted){
+        version.incrementAndGet();
+        Snapshot index = snapshot;
+        if(index != null){
+            snapshot = index.edited(offset, removed, inserted);
+        }
+        schedule();
+    }
+
+    // Brings the index up to date once the document has been quiet for IDLE_MILLIS, replacing an earlier build
+    private void schedule(){
+        if(scheduled != null){
+            scheduled.cancel(false);                                // A running build stops on its own
+        }
+        scheduled = null;
+        Snapshot index = snapshot;
+        if(doc.getLength() < INDEX_THRESHOLD || (index != null && index.dirtyCount == 0)){
+            return;
+        }
+        scheduled = executor.schedule(new Build(version.get(), index), IDLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Distinct buckets of the trigrams in texts, out of 1 << bucketBits
+    private static int[] trigramsOf(List<String> texts, int bucketBits){
+        int[] trigrams = new int[0];
+        for(String s : texts){
+            for(int i = 0; i + 2 < s.length(); i++){
+                int trigram = hash(FOLD[s.charAt(i)], FOLD[s.charAt(i + 1)], FOLD[s.charAt(i + 2)], bucketBits);
+                if(Arrays.stream(trigrams).noneMatch(t -> t == trigram)){
+                    trigrams = Arrays.copyOf(trigrams, trigrams.length + 1);
+                    trigrams[trigrams.length - 1] = trigram;
+                }
+            }
+        }
+        return trigrams;
+    }
+
+    // Bucket of a trigram of folded characters
+    private static int hash(char a, char b, char c, int bucketBits){
+        int h = (a * 0x9E3779B1) ^ (b * 0x85EBCA77) ^ (c * 0xC2B2AE3D);
+        h ^= h >>> 15;
+        h *= 0x2C1B3C6D;
+        return h >>> (32 - bucketBits);
+    }
+
+    // Index of the document at one moment, never changed once made so searches can read it from any thread
+    private static class Snapshot {
+        private final int length;                                   // Document length
+        private final int[] starts;                                 // Where each block starts, in order
+        private final int bucketBits;                               // Trigrams are hashed to 1 << bucketBits buckets
+        private final long[][] columns;                             // Buckets each block holds, shared by snapshots
+        private final long[] dirty;                                 // Blocks edited since they were indexed
+        private final int dirtyCount;
+
+        Snapshot(int length, int[] starts, int bucketBits, long[][] columns, long[] dirty){
+            this.length = length;
+            this.starts = starts;
+            this.bucketBits = bucketBits;
+            this.columns = columns;
+            this.dirty = dirty;
+            this.dirtyCount = Arrays.stream(dirty).mapToInt(Long::bitCount).sum();
+        }
+
+        // Offset right after block b
+        int end(int b){
+            return (b + 1 < starts.length) ? starts[b + 1] : length;
+        }
+
+        // Block holding offset, the last one for the end of the document
+        int blockOf(int offset){
+            int b = Arrays.binarySearch(starts, offset);
+            if(b < 0){
+                return -b - 2;
+            }
+            while(b + 1 < starts.length && starts[b + 1] == offset){
+                b++;                                                // Skips blocks emptied by a removal
+            }
+            return b;
+        }
+
+        boolean isDirty(int b){
+            return (dirty[b >>> 6] & (1L << b)) != 0;
+        }
+
+        // Whether every trigram starts in one of the blocks from first to last
+        boolean holdsAll(int[] trigrams, int first, int last){
+            for(int trigram : trigrams){
+                boolean found = false;
+                for(int b = first; b <= last && !found; b++){
+                    found = isDirty(b) || (columns[b][trigram >>> 6] & (1L << trigram)) != 0;
+                }
+                if(!found){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Whether a trigram could be anywhere in the document
+        boolean anywhere(int trigram){
+            if(dirtyCount > 0){
+                return true;
+            }
+            for(long[] column : columns){
+                if((column[trigram >>> 6] & (1L << trigram)) != 0){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Index after removed characters at offset were replaced by inserted ones
+        // Blocks after the edit move with it, the ones a changed trigram starts in are marked dirty
+        Snapshot edited(int offset, int removed, int inserted){
+            int delta = inserted - removed;
+            int firstDirty = blockOf(Math.max(offset - 2, 0));
+            int lastDirty = blockOf(offset + removed);
+            int[] shifted = starts.clone();
+            for(int b = lastDirty + 1; b < shifted.length; b++){
+                shifted[b] += delta;
+            }
+            for(int b = firstDirty + 1; b <= lastDirty; b++){
+                if(shifted[b] > offset){                            // Started in removed text, now empty
+                    shifted[b] = offset;
+                }
+            }
+            long[] newDirty = dirty.clone();
+            for(int b = firstDirty; b <= lastDirty; b++){
+                newDirty[b >>> 6] |= 1L << b;
+            }
+            return new Snapshot(length + delta, shifted, bucketBits, columns, newDirty);
+        }
+    }
+
+    // Indexes one version of the document on the build thread, giving up as soon as the version moves on
+    // Only the dirty blocks are indexed again, unless there is no index yet or most of it is dirty
+    private class Build implements Runnable {
+        private final long expected;                                // Version being indexed
+        private final Snapshot old;                                 // Index being brought up to date, or null
+        private final Segment segment;                              // Buffer for reading the document
+        private int[] starts;
+        private int bucketBits;
+        private long[][] columns;
+        private boolean full;                                       // Indexing every block from scratch
+        private boolean cancelled;                                  // Document changed before the end was reached
+
+        Build(long expected, Snapshot old){
+            this.expected = expected;
+            this.old = old;
+            segment = new Segment();
+        }
+
+        @Override
+        public void run(){
+            full = (old == null || old.dirtyCount * 4 > old.starts.length);
+            int length = full ? doc.getLength() : old.length;
+            if(full){
+                // As many blocks as the length calls for, then fewer buckets, then fewer blocks, to fit the budget
+                long wanted = ((long) length + MIN_BLOCK_SIZE - 1) / MIN_BLOCK_SIZE;
+                int count = (int) Math.min(MAX_BLOCKS, Math.max(1, wanted));
+                bucketBits = MAX_BUCKET_BITS;
+                while(bucketBits > MIN_BUCKET_BITS && ((long) count << bucketBits) / 8 > MAX_INDEX_BYTES){
+                    bucketBits--;
+                }
+                count = (int) Math.max(1, Math.min(count, MAX_INDEX_BYTES * 8 >> bucketBits));
+                int blockSize = Math.max(MIN_BLOCK_SIZE, (int) (((long) length + count - 1) / count));
+                count = Math.max(1, (int) (((long) length + blockSize - 1) / blockSize));
+                starts = new int[count];
+                for(int b = 0; b < count; b++){
+                    starts[b] = b * blockSize;
+                }
+                columns = new long[count][];
+            } else{
+                starts = old.starts;
+                bucketBits = old.bucketBits;
+                columns = old.columns.clone();                      // Only the dirty blocks get new arrays
+            }
+            for(int b = 0; b < starts.length && !cancelled; b++){
+                if(full || old.isDirty(b)){
+                    int block = b;
+                    doc.render(() -> indexBlock(block));            // Only holds the read lock for one block
+                }
+            }
+            if(cancelled){
+                return;                                             // A newer build is already scheduled
+            }
+            Snapshot built = new Snapshot(length, starts, bucketBits, columns, new long[(starts.length + 63) >>> 6]);
+            SwingUtilities.invokeLater(() -> {
+                if(version.get() == expected){                      // Still the same document on the EDT
+                    snapshot = built;
+                }
+            });
+        }
+
+        // Sets the bits of the trigrams starting in block b, called while holding the read lock
+        private void indexBlock(int b){
+            if(version.get() != expected){                          // Edited since the last block
+                cancelled = true;
+                return;
+            }
+            int length = doc.getLength();
+            int start = starts[b];
+            int end = (b + 1 < starts.length) ? starts[b + 1] : length;
+            long[] column = new long[1 << (bucketBits - 6)];       // Searches may still be reading the old one
+            columns[b] = column;
+            int readEnd = Math.min(end + 2, length);                // Trigrams starting at the end run past it
+            if(readEnd - start < 3){
+                return;
+            }
+            try{
+                doc.getText(start, readEnd - start, segment);
+            } catch (BadLocationException e){
+                e.printStackTrace();
+                cancelled = true;
+                return;
+            }
+            char[] array = segment.array;
+            int offset = segment.offset;
+            char a = FOLD[array[offset]];
+            char c = FOLD[array[offset + 1]];
+            for(int i = offset + 2; i < offset + segment.count && i - 2 - offset < end - start; i++){
+                char next = FOLD[array[i]];
+                int bucket = hash(a, c, next, bucketBits);
+                column[bucket >>> 6] |= 1L << bucket;
+                a = c;
+                c = next;
+            }
+        }
+    }
+}
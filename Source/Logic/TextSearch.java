@@ -0,0 +1,313 @@
+package Source.Logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Compiled Find query, either plain text searched with Boyer-Moore-Horspool or a regular expression
+// Compiled queries are kept in a small LRU cache, so searching again with the same query and options is free
+public abstract class TextSearch {
+    private static final int CACHED_SEARCHES = 32;
+
+    // Most recently used queries, least recent first
+    private static final Map<String, TextSearch> cache = new LinkedHashMap<>(CACHED_SEARCHES, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TextSearch> eldest){
+            return size() > CACHED_SEARCHES;
+        }
+    };
+
+    // Goes through the matches in a text one at a time, like a Matcher
+    public interface Finder {
+        boolean find();                                             // Moves to the next match, false if there is none
+        boolean find(int from);                                     // Starts over with the first match at or after from
+        // Starts over with only matches inside start..end, the text around them is still read for word boundaries and
+        // lookaround, find(int) searches the whole text again
+        void region(int start, int end);
+        int start();
+        int end();
+    }
+
+    // Starts a search of text from its beginning
+    public abstract Finder finder(CharSequence text);
+
+    // Length of every match, or -1 if matches can have different lengths
+    public abstract int getMatchLength();
+
+    // Longest a match can be, or -1 if there is no limit
+    public abstract int getMaxMatchLength();
+
+    // Pieces of text every match contains, ignoring case, possibly none
+    public abstract List<String> getRequiredText();
+
+    // Compiles query, or takes it from the cache, throws PatternSyntaxException for an invalid regular expression
+    // Words only matches query where it starts and ends at a word boundary, caps matches case exactly
+    public static TextSearch compile(String query, boolean regex, boolean words, boolean caps)
+            throws PatternSyntaxException{
+        String key = (regex ? 'r' : 'l') + (words ? "w" : "-") + (caps ? "c" : "-") + query;
+        synchronized(cache){
+            TextSearch search = cache.get(key);
+            if(search == null){
+                search = regex ? new RegexSearch(query, words, caps) : new LiteralSearch(query, words, caps);
+                cache.put(key, search);
+            }
+            return search;
+        }
+    }
+
+    // Same word characters as \b in a Pattern
+    static boolean isWordChar(char c){
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    // Whether there is a word boundary right before index
+    static boolean isBoundary(CharSequence text, int index){
+        boolean before = index > 0 && isWordChar(text.charAt(index - 1));
+        boolean after = index < text.length() && isWordChar(text.charAt(index));
+        return before != after;
+    }
+
+    // Query used as a regular expression
+    private static class RegexSearch extends TextSearch {
+        private final Pattern pattern;
+        private final int maxLength;
+        private final List<String> required;
+
+        RegexSearch(String query, boolean words, boolean caps){
+            String regex = words ? "\\b(?:" + query + ")\\b" : query;
+            // Folds case beyond ASCII, like LiteralSearch and the trigram index do
+            pattern = Pattern.compile(regex, caps ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            maxLength = PatternLength.max(regex);
+            required = requiredText(query);
+        }
+
+        @Override
+        public Finder finder(CharSequence text){
+            Matcher matcher = pattern.matcher(text);
+            return new Finder() {
+                @Override
+                public boolean find() { return matcher.find(); }
+                @Override
+                public boolean find(int from) { return matcher.find(from); }
+                @Override
+                public void region(int start, int end){
+                    matcher.region(start, end);
+                    matcher.useTransparentBounds(true);             // Boundaries and lookaround see past the region
+                    matcher.useAnchoringBounds(false);              // ^ and $ only match where they would without it
+                }
+                @Override
+                public int start() { return matcher.start(); }
+                @Override
+                public int end() { return matcher.end(); }
+            };
+        }
+
+        @Override
+        public int getMatchLength(){
+            return -1;
+        }
+
+        @Override
+        public int getMaxMatchLength(){
+            return maxLength;
+        }
+
+        @Override
+        public List<String> getRequiredText(){
+            return required;
+        }
+
+        // Runs of plain characters outside any group, class or quantifier, which every match has to contain
+        // Gives up and returns none for alternation, or flags that change how the pattern is read
+        private static List<String> requiredText(String regex){
+            List<String> runs = new ArrayList<>();
+            if(regex.contains("|") || regex.matches("(?s).*\\(\\?[a-zA-Z-]*x.*")){
+                return runs;
+            }
+            StringBuilder run = new StringBuilder();
+            int depth = 0;                                          // Groups the current character is in
+            int i = 0;
+            while(i < regex.length()){
+                char c = regex.charAt(i++);
+                char literal = 0;                                   // Character matched as it is, if any
+                if(c == '\\' && i < regex.length()){
+                    char escaped = regex.charAt(i++);
+                    if(Character.isLetterOrDigit(escaped)){         // Class, anchor, code or quoted text
+                        if(i < regex.length() && regex.charAt(i) == '{'){
+                            i = Math.max(regex.indexOf('}', i) + 1, i);
+                        } else if(escaped == 'Q'){
+                            int end = regex.indexOf("\\E", i);
+                            i = (end < 0) ? regex.length() : end + 2;
+                        } else if(escaped == 'k'){
+                            i = Math.max(regex.indexOf('>', i) + 1, i);
+                        } else if(escaped == 'u'){
+                            i += 4;
+                        } else if(escaped == 'x'){
+                            i += 2;
+                        } else if(escaped == 'p' || escaped == 'P' || escaped == 'c'){
+                            i++;
+                        }
+                        while(escaped <= '9' && i < regex.length() && Character.isDigit(regex.charAt(i))){
+                            i++;                                    // Rest of an octal code or back reference
+                        }
+                        i = Math.min(i, regex.length());
+                    } else{
+                        literal = escaped;
+                    }
+                } else if(c == '['){                                // Skips the class, which can be nested
+                    int classDepth = 1;
+                    while(i < regex.length() && classDepth > 0){
+                        char d = regex.charAt(i++);
+                        if(d == '\\'){
+                            i++;
+                        } else if(d == '['){
+                            classDepth++;
+                        } else if(d == ']'){
+                            classDepth--;
+                        }
+                    }
+                } else if(c == '('){
+                    depth++;
+                } else if(c == ')'){
+                    depth--;
+                } else if(c == '{'){                                // Quantifier of the atom before
+                    i = Math.max(regex.indexOf('}', i) + 1, i);
+                } else if(".^$?*+".indexOf(c) < 0){
+                    literal = c;
+                }
+
+                char next = (i < regex.length()) ? regex.charAt(i) : 0;
+                boolean optional = (next == '?' || next == '*' || next == '{');
+                if(literal != 0 && depth == 0 && !optional){
+                    run.append(literal);                            // Kept even if repeated by a +
+                }
+                if(literal == 0 || depth != 0 || optional || next == '+'){
+                    if(run.length() > 0){
+                        runs.add(run.toString());
+                        run.setLength(0);
+                    }
+                }
+            }
+            if(run.length() > 0){
+                runs.add(run.toString());
+            }
+            return runs;
+        }
+    }
+
+    // Query searched for as it is with Boyer-Moore-Horspool
+    // Case is folded one character at a time and word boundaries are checked on each candidate, so neither needs
+    // a regular expression
+    private static class LiteralSearch extends TextSearch {
+        private static final int TABLE_SIZE = 256;                  // Characters share shifts by their low byte
+
+        private final String text;                                  // Query as it was given
+        private final char[] query;                                 // Folded if case does not matter
+        private final boolean words;
+        private final boolean caps;
+        private final int[] shifts;                                 // How far the query can move on each last char
+
+        LiteralSearch(String query, boolean words, boolean caps){
+            this.words = words;
+            this.caps = caps;
+            this.text = query;
+            this.query = new char[query.length()];
+            for(int i = 0; i < query.length(); i++){
+                this.query[i] = fold(query.charAt(i));
+            }
+
+            // Characters that share a slot keep the smallest shift of any of them, so no match is skipped
+            int m = this.query.length;
+            shifts = new int[TABLE_SIZE];
+            Arrays.fill(shifts, m);
+            for(int i = 0; i < m - 1; i++){
+                shifts[this.query[i] & (TABLE_SIZE - 1)] = m - 1 - i;
+            }
+        }
+
+        @Override
+        public Finder finder(CharSequence text){
+            return new Finder() {
+                private int start = -1;
+                private int next = 0;                               // Where the next search starts
+                private int limit = text.length();                  // Where matches have to end by
+
+                @Override
+                public boolean find(){
+                    start = indexOf(text, next, limit);
+                    // Goes on after the match like a Matcher does, so matches never overlap
+                    next = (start < 0) ? limit + 1 : start + Math.max(query.length, 1);
+                    return start >= 0;
+                }
+
+                @Override
+                public boolean find(int from){
+                    next = from;
+                    limit = text.length();
+                    return find();
+                }
+
+                @Override
+                public void region(int start, int end){
+                    next = start;
+                    limit = end;
+                }
+
+                @Override
+                public int start() { return start; }
+                @Override
+                public int end() { return start + query.length; }
+            };
+        }
+
+        @Override
+        public int getMatchLength(){
+            return query.length;
+        }
+
+        @Override
+        public int getMaxMatchLength(){
+            return query.length;
+        }
+
+        @Override
+        public List<String> getRequiredText(){
+            return List.of(text);
+        }
+
+        // Start of the first match at or after from that ends by to, or -1
+        private int indexOf(CharSequence text, int from, int to){
+            int m = query.length;
+            if(m == 0){                                             // Matches everywhere, like an empty Pattern
+                return (from <= to) ? from : -1;
+            }
+            int last = m - 1;
+            int limit = to - m;
+            int i = from;
+            while(i <= limit){
+                char c = fold(text.charAt(i + last));
+                if(c == query[last]){
+                    int j = last - 1;
+                    while(j >= 0 && fold(text.charAt(i + j)) == query[j]){
+                        j--;
+                    }
+                    if(j < 0 && (!words || (isBoundary(text, i) && isBoundary(text, i + m)))){
+                        return i;
+                    }
+                }
+                i += shifts[c & (TABLE_SIZE - 1)];
+            }
+            return -1;
+        }
+
+        // Character compared when case does not matter, upper then lower case catches letters like the Greek sigma
+        private char fold(char c){
+            return caps ? c : Character.toLowerCase(Character.toUpperCase(c));
+        }
+    }
+}
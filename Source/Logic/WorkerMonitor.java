@@ -0,0 +1,31 @@
+package Source.Logic;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+// Ties a ProgressMonitor to a SwingWorker, the monitor shows the worker's progress and its cancel button cancels it
+// The worker's done() still closes the monitor, before it shows anything of its own
+public class WorkerMonitor {
+    private static final int CANCEL_POLL_MILLIS = 100;              // How often the cancel button is checked
+
+    private WorkerMonitor() { }
+
+    // Call before the worker is executed, on the EDT
+    public static void watch(SwingWorker<?, ?> worker, ProgressMonitor monitor){
+        // Checks the cancel button on its own, since progress may change only once every percent or not for a while
+        Timer cancelPoll = new Timer(CANCEL_POLL_MILLIS, e -> {
+            if(monitor.isCanceled()){                               // Cancel button pressed
+                worker.cancel(true);
+            }
+        });
+        worker.addPropertyChangeListener(e -> {                     // Property changes arrive on the EDT
+            if("progress".equals(e.getPropertyName())){
+                monitor.setProgress(worker.getProgress());
+            } else if("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE){
+                cancelPoll.stop();
+            }
+        });
+        cancelPoll.start();
+    }
+}
@@ -1,8 +1,16 @@
 package Source.Main;
 import Source.GUI.Window;
+import Source.Logic.BatchAnalyzer;
+import Source.Logic.SpeechExporter;
 
 public class Main {
     public static void main (String[] args){
-        new Window();
+        if(args.length > 0 && args[0].equals(BatchAnalyzer.FLAG)){
+            System.exit(BatchAnalyzer.run(args));   // Headless, the GUI classes are never loaded
+        } else if(args.length > 0 && args[0].equals(SpeechExporter.FLAG)){
+            System.exit(SpeechExporter.run(args));  // Headless too, writes WAV files instead of playing
+        } else{
+            new Window();
+        }
     }
 }
@@ -0,0 +1,59 @@
+package Source.Logic;
+
+import java.util.Random;
+import java.util.Vector;
+
+// Randomized comparison of the fused scanner in CounterUtil with the regex counts it replaced
+// Every character on its own, many short texts made of the characters the classes care about, and one text long
+// enough to be counted in parallel chunks, so runs split across chunks are stitched back together too
+// Run with: java Source.Logic.CounterUtilCheck [seed], exits with 1 on the first text the two disagree on
+public class CounterUtilCheck {
+    private static final String ALPHABET = "ab \n\r\t.!?:  \u0085\u000B\f  　";
+    private static final int SHORT_TEXTS = 20000;
+    private static final int LONG_LENGTH = 5 << 20;                 // Past the parallel threshold
+
+    public static void main(String[] args){
+        long seed = (args.length > 0) ? Long.parseLong(args[0]) : System.nanoTime();
+        Random random = new Random(seed);
+
+        // Every char between two letters and doubled, so runs of it are seen too
+        for(int c = 0; c <= Character.MAX_VALUE; c++){
+            compare("x" + (char) c + (char) c + "y", seed);
+        }
+        for(int i = 0; i < SHORT_TEXTS; i++){
+            compare(randomText(random, random.nextInt(40)), seed);
+        }
+        compare(randomText(random, LONG_LENGTH), seed);
+        System.out.println("CounterUtil agrees with the regex counts, seed " + seed);
+    }
+
+    // Text of length characters, mostly letters so words and sentences have some length
+    private static String randomText(Random random, int length){
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            sb.append(random.nextInt(3) == 0 ? ALPHABET.charAt(random.nextInt(ALPHABET.length())) : 'w');
+        }
+        return sb.toString();
+    }
+
+    private static void compare(String text, long seed){
+        Vector<String> fused = CounterUtil.getCounterData(text);
+        Vector<String> regex = CounterUtil.getRegexCounterData(text);
+        if(!fused.equals(regex)){
+            String shown = (text.length() > 80) ? text.length() + " characters" : escape(text);
+            System.err.println("Counts differ for " + shown + " (seed " + seed + ")");
+            System.err.println("  fused: " + fused);
+            System.err.println("  regex: " + regex);
+            System.exit(1);
+        }
+    }
+
+    // Text with control and space characters written as escapes
+    private static String escape(String text){
+        StringBuilder sb = new StringBuilder("\"");
+        for(char c : text.toCharArray()){
+            sb.append((c < 0x20 || c > 0x7E) ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,119 @@
+package Source.Logic;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Checks the two levels of DictionaryCache in a temporary folder: hits after a restart, memory eviction, compaction
+// of a file with many old records, a file whose last record was cut off, and records older than the time to live
+// Run with: java Source.Logic.DictionaryCacheCheck, exits with 1 on the first check that fails
+public class DictionaryCacheCheck {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long MEMORY = 1 << 20;
+
+    public static void main(String[] args) throws Exception{
+        Path dir = Files.createTempDirectory("illud-cache-check");
+        try{
+            restart(dir.resolve("restart.cache"));
+            eviction(dir.resolve("eviction.cache"));
+            compaction(dir.resolve("compaction.cache"));
+            truncatedTail(dir.resolve("truncated.cache"));
+            timeToLive(dir.resolve("ttl.cache"));
+        } finally{
+            try(Stream<Path> files = Files.walk(dir)){
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.println("DictionaryCache checks passed");
+    }
+
+    // Responses written by one cache are read by the next one on the same file, under the word's key
+    private static void restart(Path file){
+        DictionaryCache<String> cache = open(file, DAY, MEMORY);
+        cache.put("Word", "[\"word\"]", "[\"word\"]");
+        cache.put("two words", "[\"two words\"]", "[\"two words\"]");
+        DictionaryCache<String> reopened = open(file, DAY, MEMORY);
+        check(reopened.size() == 2, "restart keeps both words, has " + reopened.size());
+        check("[\"word\"]".equals(reopened.get("  WORD ")), "restart hit for a word with other case and spaces");
+        check("[\"two words\"]".equals(reopened.get("two words")), "restart hit for two words");
+        check(reopened.get("other") == null, "restart miss for a word never put");
+    }
+
+    // Memory keeps the most recently used results within its limit, the disk still has the ones it dropped
+    private static void eviction(Path file){
+        DictionaryCache<String> memoryOnly = open(null, DAY, 10);
+        memoryOnly.put("a", "123456", "a");
+        memoryOnly.put("b", "123456", "b");
+        check(memoryOnly.get("a") == null, "least recently used result dropped from memory");
+        check("b".equals(memoryOnly.get("b")), "most recently used result kept in memory");
+
+        // The parser counts how often a response is read back from the file
+        int[] parsed = {0};
+        DictionaryCache<String> cache = new DictionaryCache<>(file, DAY, 10, response -> {
+            parsed[0]++;
+            return response;
+        });
+        cache.put("a", "123456", "123456");
+        cache.put("b", "123456", "123456");
+        check("123456".equals(cache.get("a")) && parsed[0] == 1, "dropped result read back from disk");
+        check("123456".equals(cache.get("a")) && parsed[0] == 1, "result read from disk kept in memory again");
+    }
+
+    // Looking the same words up again and again rewrites the file once most of it is old records
+    private static void compaction(Path file) throws IOException{
+        DictionaryCache<String> cache = open(file, DAY, MEMORY);
+        String response = "x".repeat(1000);
+        for(int i = 0; i < 500; i++){
+            cache.put("word" + (i % 5), response + i, response + i);
+        }
+        long size = Files.size(file);
+        check(size < 20 * 1024, "file compacted to the live records, is " + size + " bytes");
+        DictionaryCache<String> reopened = open(file, DAY, MEMORY);
+        check(reopened.size() == 5, "compacted file has every word, has " + reopened.size());
+        check((response + 499).equals(reopened.get("word4")), "compacted file has the latest response");
+        check(!Files.exists(file.resolveSibling(file.getFileName() + ".tmp")), "no temporary file left");
+    }
+
+    // A record cut off while it was written is dropped, the records before it are kept and new ones follow them
+    private static void truncatedTail(Path file) throws IOException{
+        DictionaryCache<String> cache = open(file, DAY, MEMORY);
+        cache.put("first", "[\"first\"]", "[\"first\"]");
+        cache.put("second", "[\"second\"]", "[\"second\"]");
+        try(RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")){
+            raf.setLength(raf.length() - 3);
+        }
+        DictionaryCache<String> reopened = open(file, DAY, MEMORY);
+        check(reopened.size() == 1, "cut off record dropped, has " + reopened.size());
+        check("[\"first\"]".equals(reopened.get("first")), "record before the cut off one kept");
+        reopened.put("third", "[\"third\"]", "[\"third\"]");
+        DictionaryCache<String> again = open(file, DAY, MEMORY);
+        check(again.size() == 2 && "[\"third\"]".equals(again.get("third")), "record written after the cut kept");
+
+        Files.write(file, new byte[]{1, 2, 3});                     // Not a cache file at all
+        check(open(file, DAY, MEMORY).size() == 0, "file that is not a cache started over");
+    }
+
+    // Records older than the time to live are not read after a restart
+    private static void timeToLive(Path file) throws InterruptedException{
+        DictionaryCache<String> cache = open(file, 50, MEMORY);
+        cache.put("old", "[\"old\"]", "[\"old\"]");
+        Thread.sleep(100);
+        DictionaryCache<String> reopened = open(file, 50, MEMORY);
+        check(reopened.size() == 0 && reopened.get("old") == null, "record past its time to live dropped");
+    }
+
+    // Cache that parses a response into itself, so values put are the responses
+    private static DictionaryCache<String> open(Path file, long timeToLive, long memoryLimit){
+        return new DictionaryCache<>(file, timeToLive, memoryLimit, response -> response);
+    }
+
+    private static void check(boolean passed, String what){
+        if(!passed){
+            System.err.println("Failed: " + what);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package Source.Logic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Checks DictionaryClient against a stub dictionary server on a local port: lookups of the same word share one
+// request, unknown words, server errors, a server slower than the read timeout, and callers that cancel
+// Run with: java Source.Logic.DictionaryClientCheck, exits with 1 on the first check that fails
+public class DictionaryClientCheck {
+    private static final String PATH = "/entries/";
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(500);
+    private static final long SLOW_MILLIS = 300;                    // Slow, but well within the read timeout
+    private static final long HUNG_MILLIS = 3000;                   // Past the read timeout
+
+    // Requests the server got for each word
+    private static final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception{
+        ExecutorService handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Stub dictionary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PATH, DictionaryClientCheck::handle);
+        server.setExecutor(handlers);
+        server.start();
+        try{
+            String source = "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+            DictionaryClient client = new DictionaryClient(source, Duration.ofSeconds(2), READ_TIMEOUT);
+            responses(client);
+            coalescing(client);
+            timeout(client);
+            cancel(client);
+        } finally{
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+        System.out.println("DictionaryClient checks passed");
+    }
+
+    // Words the server knows, does not know, or fails on
+    private static void responses(DictionaryClient client) throws Exception{
+        check(body("word").equals(client.fetch("word").get()), "known word");
+        check(body("two words").equals(client.fetch("Two Words ").get()), "word with a space, sent by its key");
+        check(client.fetch("missing").get() == null, "unknown word gives null");
+        check(failure(client.fetch("broken")) instanceof IOException, "server error fails with an IOException");
+    }
+
+    // Lookups of a word while its request runs share it, a lookup after it is done makes a new one
+    private static void coalescing(DictionaryClient client) throws Exception{
+        CompletableFuture<String> first = client.fetch("slow-shared");
+        CompletableFuture<String> second = client.fetch("SLOW-SHARED");
+        check(first != second, "each caller gets a future of its own");
+        check(body("slow-shared").equals(first.get()) && body("slow-shared").equals(second.get()),
+                "both callers get the shared response");
+        check(count("slow-shared") == 1, "one request for both callers, got " + count("slow-shared"));
+        client.fetch("slow-shared").get();
+        check(count("slow-shared") == 2, "new request once the first is done, got " + count("slow-shared"));
+    }
+
+    // A server slower than the read timeout fails the lookup in about the timeout
+    private static void timeout(DictionaryClient client){
+        long startTime = System.nanoTime();
+        Throwable error = failure(client.fetch("hung-timeout"));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        check(error instanceof HttpTimeoutException, "slow server times out, got " + error);
+        check(millis < HUNG_MILLIS, "timed out after " + millis + " ms, before the server answered");
+    }
+
+    // A cancelled caller does not cancel the request for the others, the last one to cancel does
+    private static void cancel(DictionaryClient client) throws Exception{
+        CompletableFuture<String> leaving = client.fetch("slow-cancel");
+        CompletableFuture<String> staying = client.fetch("slow-cancel");
+        leaving.cancel(true);
+        check(body("slow-cancel").equals(staying.get()), "caller still waiting gets the response");
+        check(count("slow-cancel") == 1, "one request for both callers, got " + count("slow-cancel"));
+
+        CompletableFuture<String> only = client.fetch("hung-cancel");
+        awaitCount("hung-cancel", 1);                               // The request reached the server
+        only.cancel(true);
+        CompletableFuture<String> later = client.fetch("hung-cancel");
+        check(!later.isDone(), "lookup after every caller cancelled waits on a request");
+        check(awaitCount("hung-cancel", 2), "cancelled request not shared, got " + count("hung-cancel"));
+        later.cancel(true);
+    }
+
+    // Answers with the word in an entry, 404 for missing, 500 for broken, and late for slow and hung words
+    private static void handle(HttpExchange exchange) throws IOException{
+        String word = exchange.getRequestURI().getPath().substring(PATH.length());
+        requests.computeIfAbsent(word, w -> new AtomicInteger()).incrementAndGet();
+        try{
+            if(word.startsWith("slow")){
+                Thread.sleep(SLOW_MILLIS);
+            } else if(word.startsWith("hung")){
+                Thread.sleep(HUNG_MILLIS);
+            }
+        } catch (InterruptedException e){
+            exchange.close();
+            return;
+        }
+        int status = word.equals("missing") ? 404 : word.equals("broken") ? 500 : 200;
+        byte[] bytes = (status == 200 ? body(word) : "{}").getBytes(StandardCharsets.UTF_8);
+        try{
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try(OutputStream out = exchange.getResponseBody()){
+                out.write(bytes);
+            }
+        } catch (IOException e){
+            exchange.close();                                       // The client stopped waiting
+        }
+    }
+
+    private static String body(String word){
+        return "[{\"word\":\"" + word + "\"}]";
+    }
+
+    private static int count(String word){
+        AtomicInteger count = requests.get(word);
+        return (count == null) ? 0 : count.get();
+    }
+
+    // Waits up to the read timeout for the server to get count requests for word, false if it does not
+    private static boolean awaitCount(String word, int count) throws InterruptedException{
+        long deadline = System.nanoTime() + READ_TIMEOUT.toNanos();
+        while(count(word) < count && System.nanoTime() < deadline){
+            Thread.sleep(10);
+        }
+        return count(word) >= count;
+    }
+
+    // What a lookup failed with, or null if it did not
+    private static Throwable failure(CompletableFuture<String> lookup){
+        try{
+            lookup.get();
+            return null;
+        } catch (ExecutionException e){
+            return e.getCause();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return e;
+        }
+    }
+
+    private static void check(boolean passed, String what){
+        if(!passed){
+            System.err.println("Failed: " + what);
+            System.exit(1);
+        }
+    }
+}
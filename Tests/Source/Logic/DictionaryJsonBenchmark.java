@@ -0,0 +1,141 @@
+package Source.Logic;
+
+import com.sun.management.ThreadMXBean;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares the streaming DictionaryJson with the json-simple tree walk it replaced, on a typical response and a very
+// long one, measuring bytes allocated and time per parse on this thread once both are warmed up
+// json-simple is only used here, its jar is in Tests/lib and has to be on the classpath
+// Run with: java Source.Logic.DictionaryJsonBenchmark, exits with 1 if the two disagree on a response or the
+// streaming parse allocates more than the tree
+public class DictionaryJsonBenchmark {
+    private static final int WARM_UP_MILLIS = 2000;
+    private static final int MEASURED_MILLIS = 2000;
+
+    private static volatile long sink;                              // Keeps the results from being optimized away
+
+    private interface Parser {
+        List<DictionaryEntry> parse(String response) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception{
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if(!threads.isThreadAllocatedMemorySupported()){
+            System.err.println("This JVM does not count allocated bytes per thread");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        boolean passed = true;
+        for(int senses : new int[]{3, 480}){
+            String response = response(senses);
+            String stream = DictionaryEntry.render(DictionaryJson.parse(response));
+            String tree = DictionaryEntry.render(treeParse(response));
+            if(!stream.equals(tree)){
+                System.err.println("The parses disagree on the response with " + senses + " senses");
+                System.exit(1);
+            }
+            System.out.printf("%d characters, %d senses%n", response.length(), senses);
+            double treeBytes = measure("json-simple tree", DictionaryJsonBenchmark::treeParse, response, threads);
+            double streamBytes = measure("DictionaryJson", DictionaryJson::parse, response, threads);
+            passed &= streamBytes <= treeBytes;
+        }
+        if(!passed){
+            System.err.println("The streaming parse allocates more than the tree");
+            System.exit(1);
+        }
+    }
+
+    // Parses response over and over, prints and returns the bytes allocated by each parse
+    private static double measure(String name, Parser parser, String response, ThreadMXBean threads) throws Exception{
+        long end = System.currentTimeMillis() + WARM_UP_MILLIS;
+        while(System.currentTimeMillis() < end){
+            sink += parser.parse(response).size();
+        }
+        int parses = 0;
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long startTime = System.nanoTime();
+        end = System.currentTimeMillis() + MEASURED_MILLIS;
+        while(System.currentTimeMillis() < end){
+            sink += parser.parse(response).size();
+            parses++;
+        }
+        double nanos = (double) (System.nanoTime() - startTime) / parses;
+        double allocated = (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / parses;
+        System.out.printf("  %-18s %10.1f KB  %10.1f us per parse%n", name, allocated / 1024, nanos / 1000);
+        return allocated;
+    }
+
+    // Response in the api.dictionaryapi.dev format with every part the streaming parse steps over
+    private static String response(int senses){
+        StringBuilder sb = new StringBuilder("[{\"word\":\"example\",");
+        sb.append("\"phonetic\":\"/\\u026a\\u0261\\u02c8z\\u00e6mp\\u0259l/\",");
+        sb.append("\"phonetics\":[{\"text\":\"/ig-zam-pul/\",\"audio\":\"https://example.com/example-us.mp3\",");
+        sb.append("\"sourceUrl\":\"https://example.com/audio\",\"license\":{\"name\":\"BY-SA 4.0\",");
+        sb.append("\"url\":\"https://example.com/licenses\"}}],\"meanings\":[");
+        for(int i = 0; i < senses; i++){
+            if(i > 0){
+                sb.append(',');
+            }
+            sb.append("{\"partOfSpeech\":\"").append((i % 2 == 0) ? "noun" : "verb").append("\",\"definitions\":[");
+            sb.append("{\"definition\":\"Something that is representative of all such things in a group, sense ");
+            sb.append(i).append(".\",\"synonyms\":[],\"antonyms\":[],\"example\":\"This is an \\\"example\\\".\"}],");
+            sb.append("\"synonyms\":[\"instance\",\"sample\",\"specimen\"],\"antonyms\":[\"exception\"]}");
+        }
+        sb.append("],\"license\":{\"name\":\"CC BY-SA 3.0\",\"url\":\"https://example.com/by-sa\"},");
+        sb.append("\"sourceUrls\":[\"https://example.com/wiki/example\"]}]");
+        return sb.toString();
+    }
+
+    // The tree walk HttpDictionary used before DictionaryJson, the whole response is parsed into maps and lists first
+    private static List<DictionaryEntry> treeParse(String response) throws Exception{
+        List<DictionaryEntry> entries = new ArrayList<>();
+        addEntries(new JSONParser().parse(response), entries);
+        return entries;
+    }
+
+    private static void addEntries(Object o, List<DictionaryEntry> entries){
+        if(o instanceof JSONObject){
+            entries.add(toEntry((JSONObject) o));
+        } else if(o instanceof JSONArray){
+            for(Object obj : (JSONArray) o){
+                addEntries(obj, entries);
+            }
+        }
+    }
+
+    private static DictionaryEntry toEntry(JSONObject jsonObject){
+        List<DictionaryEntry.Meaning> meanings = new ArrayList<>();
+        Object meaningArray = jsonObject.get("meanings");
+        if(meaningArray instanceof JSONArray){
+            for(Object meaning : (JSONArray) meaningArray){
+                if(!(meaning instanceof JSONObject)){
+                    continue;
+                }
+                JSONObject meaningObj = (JSONObject) meaning;
+                List<String> definitions = new ArrayList<>();
+                Object definitionArray = meaningObj.get("definitions");
+                if(definitionArray instanceof JSONArray){
+                    for(Object definition : (JSONArray) definitionArray){
+                        if(definition instanceof JSONObject){
+                            definitions.add(stringOf((JSONObject) definition, "definition"));
+                        }
+                    }
+                }
+                meanings.add(new DictionaryEntry.Meaning(stringOf(meaningObj, "partOfSpeech"), definitions));
+            }
+        }
+        return new DictionaryEntry(stringOf(jsonObject, "word"), stringOf(jsonObject, "phonetic"), meanings);
+    }
+
+    private static String stringOf(JSONObject jsonObject, String key){
+        Object o = jsonObject.get(key);
+        return (o instanceof String) ? (String) o : null;
+    }
+}
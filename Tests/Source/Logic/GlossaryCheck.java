@@ -0,0 +1,187 @@
+package Source.Logic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+// Runs Glossary.define end to end against a mock dictionary server on a local port, which answers after a delay,
+// with 404 for unknown words and 500 for broken ones
+// Checks the limit on lookups at the same time, the rate limit, a second run taking every word from the cache, and
+// interrupting a run that waits on a server that does not answer
+// Run with: java Source.Logic.GlossaryCheck, exits with 1 on the first check that fails
+public class GlossaryCheck {
+    private static final String PATH = "/entries/";
+    private static final long DELAY_MILLIS = 100;                   // How long the server takes for each word
+    private static final long HUNG_MILLIS = 5000;                   // How long it takes for hung words
+    private static final int MAX_LOOKUPS = 3;
+    private static final String TEXT = "The quick brown fox jumps over the lazy dog, and THE dog sleeps on. Missing "
+            + "words and broken ones are reported too.";
+
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static final AtomicInteger active = new AtomicInteger();   // Requests being answered right now
+    private static final AtomicInteger mostActive = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception{
+        ExecutorService handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Mock dictionary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PATH, GlossaryCheck::handle);
+        server.setExecutor(handlers);
+        server.start();
+        Path dir = Files.createTempDirectory("illud-glossary-check");
+        try{
+            String source = "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+            Path cacheFile = dir.resolve("dictionary.cache");
+            List<String> words = Glossary.distinctWords(TEXT);
+            check(words.size() == 18 && words.get(0).equals("The") && !words.contains("THE"),
+                    "distinct words keep the first spelling of each, got " + words);
+
+            firstRun(dictionary(source, cacheFile), words);
+            secondRun(dictionary(source, cacheFile), words);
+            rateLimit(dictionary(source, dir.resolve("rate.cache")));
+            interrupt(dictionary(source, dir.resolve("hung.cache")));
+        } finally{
+            server.stop(0);
+            handlers.shutdownNow();
+            try(Stream<Path> files = Files.walk(dir)){
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.out.println("Glossary checks passed");
+    }
+
+    // Every word is looked up, no more than MAX_LOOKUPS at a time, and sorted into defined, missing and failed
+    private static void firstRun(HttpDictionary dictionary, List<String> words) throws InterruptedException{
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger lastDone = new AtomicInteger();
+        long startTime = System.nanoTime();
+        Glossary.Report report = new Glossary(dictionary, MAX_LOOKUPS, 0).define(words, (word, done, total) -> {
+            calls.incrementAndGet();
+            lastDone.accumulateAndGet(done, Math::max);
+            check(total == words.size(), "progress total is the number of words");
+        });
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        check(calls.get() == words.size() && lastDone.get() == words.size(),
+                "progress told of every word before define returned, " + calls + " of " + words.size());
+        check(requests.get() == words.size(), "one request for each word, got " + requests.get());
+        check(mostActive.get() <= MAX_LOOKUPS, "at most " + MAX_LOOKUPS + " lookups at a time, got " + mostActive);
+        check(mostActive.get() > 1, "lookups run at the same time, at most " + mostActive + " did");
+        long serial = words.size() * DELAY_MILLIS;
+        check(millis < serial, "took " + millis + " ms, looking up one at a time takes " + serial + " ms");
+
+        check(report.getMissing().equals(List.of("Missing")), "unknown word missing, got " + report.getMissing());
+        check(report.getFailed().keySet().equals(Set.of("broken")),
+                "server error failed, got " + report.getFailed());
+        check(report.getDefined().size() == words.size() - 2, "the other words defined");
+        check(report.getDefined().get("quick").get(0).getMeanings().get(0).getDefinitions().get(0)
+                .equals("Definition of quick."), "definition read from the response");
+        String text = report.getText();
+        check(text.startsWith("Glossary of 16 words") && text.contains("Missing") && text.contains("broken : "),
+                "glossary text lists every group");
+    }
+
+    // Another dictionary on the same cache file, like after a restart, takes every defined word from the cache
+    private static void secondRun(HttpDictionary dictionary, List<String> words) throws InterruptedException{
+        int before = requests.get();
+        Glossary.Report report = new Glossary(dictionary, MAX_LOOKUPS, 0).define(words, (word, done, total) -> { });
+        int made = requests.get() - before;
+        check(made == 2, "only the missing and broken words looked up again, " + made + " requests");
+        check(report.getDefined().size() == words.size() - 2, "cached words defined");
+    }
+
+    // Past the first MAX_LOOKUPS, lookups start no faster than the rate limit
+    private static void rateLimit(HttpDictionary dictionary) throws InterruptedException{
+        double perSecond = 20;
+        List<String> words = new ArrayList<>();
+        for(int i = 0; i < 13; i++){
+            words.add("rate" + (char) ('a' + i));
+        }
+        long startTime = System.nanoTime();
+        new Glossary(dictionary, MAX_LOOKUPS, perSecond).define(words, (word, done, total) -> { });
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        long least = (long) ((words.size() - MAX_LOOKUPS) / perSecond * 1000);
+        check(millis >= least * 9 / 10, "rate limited run took " + millis + " ms, at least " + least + " expected");
+    }
+
+    // Interrupting define while the server does not answer stops it at once with InterruptedException
+    private static void interrupt(HttpDictionary dictionary) throws InterruptedException{
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread run = new Thread(() -> {
+            try{
+                new Glossary(dictionary, MAX_LOOKUPS, 0).define(List.of("hunga", "hungb", "hungc", "hungd"),
+                        (word, done, total) -> { });
+            } catch (Throwable e){
+                thrown.set(e);
+            }
+        });
+        run.start();
+        Thread.sleep(300);
+        long startTime = System.nanoTime();
+        run.interrupt();
+        run.join(HUNG_MILLIS);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        check(!run.isAlive() && millis < 1000, "interrupted run stopped after " + millis + " ms");
+        check(thrown.get() instanceof InterruptedException, "interrupted run threw " + thrown.get());
+    }
+
+    private static HttpDictionary dictionary(String source, Path cacheFile){
+        return new HttpDictionary(source, Duration.ofSeconds(2), Duration.ofMillis(2 * HUNG_MILLIS), cacheFile,
+                TimeUnit.DAYS.toMillis(1), 1 << 20);
+    }
+
+    // Answers after a delay, 404 for "missing", 500 for "broken" and an entry for any other word
+    private static void handle(HttpExchange exchange) throws IOException{
+        String word = exchange.getRequestURI().getPath().substring(PATH.length());
+        requests.incrementAndGet();
+        mostActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try{
+            Thread.sleep(word.startsWith("hung") ? HUNG_MILLIS : DELAY_MILLIS);
+            int status = word.equals("missing") ? 404 : word.equals("broken") ? 500 : 200;
+            byte[] bytes = (status == 200 ? entry(word) : "{}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try(OutputStream out = exchange.getResponseBody()){
+                out.write(bytes);
+            }
+        } catch (InterruptedException | IOException e){
+            exchange.close();                                       // Stopped, or the client stopped waiting
+        } finally{
+            active.decrementAndGet();
+        }
+    }
+
+    // Response in the api.dictionaryapi.dev format
+    private static String entry(String word){
+        return "[{\"word\":\"" + word + "\",\"phonetic\":\"/" + word + "/\",\"meanings\":[{\"partOfSpeech\":\"noun\","
+                + "\"definitions\":[{\"definition\":\"Definition of " + word + ".\",\"example\":\"An example.\"}]}]}]";
+    }
+
+    private static void check(boolean passed, String what){
+        if(!passed){
+            System.err.println("Failed: " + what);
+            System.exit(1);
+        }
+    }
+}